@@ -0,0 +1,44 @@
+package com.streamletz.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Tables created while IDs were IDENTITY columns already hold rows, but the sequences
+// Hibernate now allocates from start at 1. Moving each sequence past the highest existing
+// ID (never backwards) runs after schema update and before the library scan.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceInitializer {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "tracks_seq", "tracks",
+            "liked_tracks_seq", "liked_tracks",
+            "playlists_seq", "playlists");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void alignSequences() {
+        SEQUENCES.forEach((sequence, table) -> {
+            try {
+                Long value = jdbcTemplate.queryForObject(
+                        "SELECT setval('" + sequence + "', GREATEST((SELECT last_value FROM " + sequence + "), "
+                                + "(SELECT COALESCE(MAX(id), 0) FROM " + table + ") + " + ALLOCATION_SIZE + "))",
+                        Long.class);
+                log.debug("Sequence {} aligned to {}", sequence, value);
+            } catch (RuntimeException e) {
+                log.warn("Could not align sequence {} with table {}: {}", sequence, table, e.getMessage());
+            }
+        });
+    }
+}
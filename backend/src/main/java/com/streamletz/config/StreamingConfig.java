@@ -0,0 +1,36 @@
+package com.streamletz.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class StreamingConfig implements WebMvcConfigurer {
+
+    @Value("${music.stream.async.max-concurrent:4096}")
+    private int maxConcurrentStreams;
+
+    @Value("${music.stream.async.timeout:PT1H}")
+    private Duration streamTimeout;
+
+    // Stream bodies run on virtual threads, so Tomcat's worker threads are released
+    // as soon as headers are prepared; the limit bounds how many bodies run at once
+    @Bean
+    public SimpleAsyncTaskExecutor streamTaskExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("stream-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrentStreams);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamTaskExecutor());
+        configurer.setDefaultTimeout(streamTimeout.toMillis());
+    }
+}
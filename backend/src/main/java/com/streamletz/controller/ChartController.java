@@ -0,0 +1,28 @@
+package com.streamletz.controller;
+
+import com.streamletz.service.ChartService;
+import com.streamletz.util.dto.ChartResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/charts")
+@RequiredArgsConstructor
+@Tag(name = "Charts", description = "Trending tracks, artists and albums")
+@SecurityRequirement(name = "bearerAuth")
+public class ChartController {
+
+    private final ChartService chartService;
+
+    @GetMapping
+    @Operation(summary = "Get charts", description = "Top tracks, artists and albums over the last hour, day or week")
+    public ResponseEntity<ChartResponse> getChart(
+            @RequestParam(defaultValue = "DAY") ChartService.Window window,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(chartService.getChart(window, limit));
+    }
+}
@@ -1,40 +1,77 @@
 package com.streamletz.controller;
 
+import com.streamletz.service.CoverRenditionService;
+import com.streamletz.service.StreamMetrics;
+import com.streamletz.util.FileValidators;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/api/covers")
 @Slf4j
+@RequiredArgsConstructor
 public class CoverController {
 
-    @Value("${music.covers.path:/covers}")
-    private String coversPath;
+    private static final Duration COVER_MAX_AGE = Duration.ofDays(365);
 
+    private final StreamMetrics streamMetrics;
+    private final CoverRenditionService coverRenditionService;
+
+    // Without a size the master is served; list views ask for one of music.covers.renditions.sizes
     @GetMapping("/{filename}")
-    public ResponseEntity<Resource> getCover(@PathVariable String filename) {
+    public ResponseEntity<StreamingResponseBody> getCover(@PathVariable String filename,
+            @RequestParam(required = false) Integer size, WebRequest webRequest) {
         try {
-            Path coverPath = Paths.get(coversPath, filename);
+            if (size != null && !coverRenditionService.isSupportedSize(size)) {
+                return ResponseEntity.badRequest().build();
+            }
 
-            if (!Files.exists(coverPath)) {
+            Path coverPath = coverRenditionService.resolveMaster(filename);
+            if (coverPath == null) {
                 log.debug("Cover not found: {}", filename);
                 return ResponseEntity.notFound().build();
             }
 
-            @SuppressWarnings("null")
-            Resource resource = new FileSystemResource(coverPath);
+            BasicFileAttributes attributes = Files.readAttributes(coverPath, BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            String etag = FileValidators.etag(coverPath, attributes.size(), lastModified);
+            // Cover file names are hashes of the image, so a name never points at different bytes
+            CacheControl cacheControl = CacheControl.maxAge(COVER_MAX_AGE).cachePublic().immutable();
+
+            if (size != null) {
+                etag = etag.substring(0, etag.length() - 1) + "-" + size + "\"";
+            }
+
+            if (webRequest.checkNotModified(etag, lastModified)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+            }
+
+            if (size != null) {
+                byte[] data = coverRenditionService.getRendition(coverPath, size);
+                return ResponseEntity.ok()
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .contentLength(data.length)
+                        .eTag(etag)
+                        .lastModified(lastModified)
+                        .cacheControl(cacheControl)
+                        .body(streamMetrics.track(out -> out.write(data)));
+            }
 
             String contentType = Files.probeContentType(coverPath);
             if (contentType == null) {
@@ -43,7 +80,11 @@ public class CoverController {
 
             return ResponseEntity.ok()
                     .contentType(MediaType.parseMediaType(contentType))
-                    .body(resource);
+                    .contentLength(attributes.size())
+                    .eTag(etag)
+                    .lastModified(lastModified)
+                    .cacheControl(cacheControl)
+                    .body(streamMetrics.track(out -> Files.copy(coverPath, out)));
 
         } catch (Exception e) {
             log.error("Error serving cover {}: {}", filename, e.getMessage(), e);
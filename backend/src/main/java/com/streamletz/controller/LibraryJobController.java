@@ -0,0 +1,47 @@
+package com.streamletz.controller;
+
+import com.streamletz.service.LibraryJobService;
+import com.streamletz.util.dto.JobStatusResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/jobs")
+@RequiredArgsConstructor
+@Tag(name = "Library jobs", description = "Background library scan and cover generation")
+@SecurityRequirement(name = "bearerAuth")
+public class LibraryJobController {
+
+    private final LibraryJobService libraryJobService;
+
+    @GetMapping
+    @Operation(summary = "List jobs", description = "Status of every library job")
+    public ResponseEntity<List<JobStatusResponse>> getStatuses() {
+        return ResponseEntity.ok(libraryJobService.getStatuses());
+    }
+
+    @GetMapping("/{job}")
+    @Operation(summary = "Get job status", description = "Progress, throughput, ETA and errors of a library job")
+    public ResponseEntity<JobStatusResponse> getStatus(@PathVariable LibraryJobService.JobType job) {
+        return ResponseEntity.ok(libraryJobService.getStatus(job));
+    }
+
+    @PostMapping("/{job}/start")
+    @Operation(summary = "Start job", description = "Starts a library job, resuming from its checkpoint unless fromScratch is set")
+    public ResponseEntity<JobStatusResponse> start(@PathVariable LibraryJobService.JobType job,
+            @RequestParam(defaultValue = "false") boolean fromScratch) {
+        return ResponseEntity.ok(libraryJobService.start(job, fromScratch));
+    }
+
+    @PostMapping("/{job}/cancel")
+    @Operation(summary = "Cancel job", description = "Stops a running library job at its next checkpoint")
+    public ResponseEntity<JobStatusResponse> cancel(@PathVariable LibraryJobService.JobType job) {
+        return ResponseEntity.ok(libraryJobService.cancel(job));
+    }
+}
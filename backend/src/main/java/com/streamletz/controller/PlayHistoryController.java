@@ -0,0 +1,52 @@
+package com.streamletz.controller;
+
+import com.streamletz.model.PlayRollup;
+import com.streamletz.model.Track;
+import com.streamletz.service.PlayHistoryService;
+import com.streamletz.util.dto.PlayCountResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/plays")
+@RequiredArgsConstructor
+@Tag(name = "Play History", description = "Listening history and play count endpoints")
+@SecurityRequirement(name = "bearerAuth")
+public class PlayHistoryController {
+
+    private static final int MAX_RECENT_LIMIT = 200;
+
+    private final PlayHistoryService playHistoryService;
+
+    @GetMapping("/recent")
+    @Operation(summary = "Get recently played tracks", description = "Most recently played tracks of the current user")
+    public ResponseEntity<List<Track>> getRecentlyPlayed(
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_RECENT_LIMIT));
+        return ResponseEntity.ok(playHistoryService.getRecentlyPlayed(userDetails.getUsername(), pageSize));
+    }
+
+    @GetMapping("/tracks/{trackId}")
+    @Operation(summary = "Get play counts per period", description = "Hourly or daily play counts of a track")
+    public ResponseEntity<List<PlayCountResponse>> getPlayCounts(
+            @PathVariable Long trackId,
+            @RequestParam(defaultValue = "DAY") PlayRollup.Period period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(30, ChronoUnit.DAYS);
+        return ResponseEntity.ok(playHistoryService.getPlayCounts(trackId, period, start, end));
+    }
+}
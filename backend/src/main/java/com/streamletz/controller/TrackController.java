@@ -1,19 +1,28 @@
 package com.streamletz.controller;
 
 import com.streamletz.model.Track;
+import com.streamletz.service.HlsService;
+import com.streamletz.service.TrackDescriptor;
+import com.streamletz.service.TrackPrefixCache;
 import com.streamletz.service.TrackService;
+import com.streamletz.service.TrackStreamingService;
+import com.streamletz.util.dto.PrefixCacheStatsResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -22,7 +31,13 @@ import java.util.List;
 @Tag(name = "Tracks", description = "Track management and streaming endpoints")
 public class TrackController {
 
+    private static final Duration HLS_PLAYLIST_MAX_AGE = Duration.ofMinutes(1);
+    private static final Duration HLS_SEGMENT_MAX_AGE = Duration.ofDays(365);
+
     private final TrackService trackService;
+    private final TrackStreamingService trackStreamingService;
+    private final TrackPrefixCache trackPrefixCache;
+    private final HlsService hlsService;
 
     @GetMapping
     @SecurityRequirement(name = "bearerAuth")
@@ -47,54 +62,63 @@ public class TrackController {
 
     @GetMapping("/stream/{id}")
     @Operation(summary = "Stream track", description = "Stream audio with HTTP Range support")
-    public ResponseEntity<Resource> streamTrack(
+    public StreamingResponseBody streamTrack(
             @PathVariable Long id,
-            @RequestHeader(value = "Range", required = false) String rangeHeader) {
+            @RequestHeader(value = "Range", required = false) String rangeHeader,
+            HttpServletRequest request,
+            HttpServletResponse response) {
 
         try {
-            Resource resource = trackService.getTrackResource(id);
-            long fileSize = trackService.getTrackFileSize(id);
-            String contentType = trackService.getContentType(id);
-            if (contentType == null || contentType.isEmpty()) {
-                contentType = "audio/mpeg";
-            }
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(contentType));
-            headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
-
-            if (rangeHeader == null || rangeHeader.isEmpty()) {
-                headers.setContentLength(fileSize);
-                return ResponseEntity.ok()
-                        .headers(headers)
-                        .body(resource);
-            } else {
-                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
-                HttpRange range = ranges.get(0);
-
-                long start = range.getRangeStart(fileSize);
-                long end = range.getRangeEnd(fileSize);
-                long contentLength = end - start + 1;
-
-                headers.add(HttpHeaders.CONTENT_RANGE,
-                        String.format("bytes %d-%d/%d", start, end, fileSize));
-                headers.setContentLength(contentLength);
-
-                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
-                        .headers(headers)
-                        .body(resource);
-            }
+            TrackDescriptor track = trackService.getTrackDescriptor(id);
+            return trackStreamingService.stream(track, rangeHeader, request, response);
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+            return null;
         }
     }
 
+    @GetMapping(value = "/{id}/hls", produces = "application/vnd.apple.mpegurl")
+    @Operation(summary = "Get HLS playlist", description = "HLS playlist splitting an MP3 track into fixed-duration segments")
+    public ResponseEntity<String> getHlsPlaylist(@PathVariable Long id) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(HLS_PLAYLIST_MAX_AGE).cachePublic())
+                .body(hlsService.getPlaylist(id));
+    }
+
+    @GetMapping("/{id}/hls/{sequence}.mp3")
+    @Operation(summary = "Get HLS segment", description = "Packed MP3 audio segment cut at frame boundaries")
+    public StreamingResponseBody getHlsSegment(
+            @PathVariable Long id,
+            @PathVariable int sequence,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+
+        HlsService.HlsSegment hls = hlsService.getSegment(id, sequence);
+        // Playlists version segment URLs by file mtime, so a segment URL never changes content
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(HLS_SEGMENT_MAX_AGE).cachePublic().immutable().getHeaderValue());
+        return trackStreamingService.streamSegment(hls.track(), hls.segment().start(), hls.segment().length(),
+                hls.header(), hls.etag(), request, response);
+    }
+
+    @GetMapping("/prefix-cache/stats")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "Get stream prefix cache stats", description = "Memory-mapped hot track prefix cache usage")
+    public ResponseEntity<PrefixCacheStatsResponse> getPrefixCacheStats() {
+        return ResponseEntity.ok(trackPrefixCache.getStats());
+    }
+
     @PostMapping("/{id}/play")
     @SecurityRequirement(name = "bearerAuth")
     @Operation(summary = "Increment play count", description = "Increment play count when track is played to 90%")
-    public ResponseEntity<Void> incrementPlayCount(@PathVariable("id") Long id) {
+    public ResponseEntity<Void> incrementPlayCount(
+            @PathVariable("id") Long id,
+            @AuthenticationPrincipal UserDetails userDetails) {
         System.out.println("Received play count increment request for track: " + id);
-        trackService.incrementPlayCount(id);
+        trackService.incrementPlayCount(id, userDetails != null ? userDetails.getUsername() : null);
         return ResponseEntity.ok().build();
     }
 
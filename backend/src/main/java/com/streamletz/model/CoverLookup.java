@@ -0,0 +1,26 @@
+package com.streamletz.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Remembered result of a remote cover lookup; a null coverUrl records a miss
+@Entity
+@Table(name = "cover_lookups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoverLookup {
+
+    @Id
+    @Column(length = 1024)
+    private String lookupKey;
+
+    private String coverUrl;
+
+    @Column(nullable = false)
+    private LocalDateTime checkedAt;
+}
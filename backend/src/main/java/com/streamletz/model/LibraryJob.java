@@ -0,0 +1,44 @@
+package com.streamletz.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "library_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LibraryJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    @Id
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    // Last item the job finished; a job that did not complete resumes after it
+    private Long checkpoint;
+
+    private Long processed;
+
+    private Long failed;
+
+    private Long total;
+
+    private String lastError;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
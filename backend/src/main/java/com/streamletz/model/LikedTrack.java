@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class LikedTrack {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "liked_tracks_id")
+    @SequenceGenerator(name = "liked_tracks_id", sequenceName = "liked_tracks_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,20 @@
+package com.streamletz.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "play_event_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlayEventCheckpoint {
+
+    @Id
+    private String journal;
+
+    @Column(nullable = false)
+    private Long lastSegment;
+}
@@ -0,0 +1,40 @@
+package com.streamletz.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "play_rollups", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"track_id", "period", "period_start"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlayRollup {
+
+    public enum Period {
+        HOUR,
+        DAY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "track_id", nullable = false)
+    private Long trackId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Period period;
+
+    @Column(name = "period_start", nullable = false)
+    private Instant periodStart;
+
+    @Column(nullable = false)
+    private Long playCount = 0L;
+}
@@ -20,7 +20,8 @@ import java.util.List;
 public class Playlist {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "playlists_id")
+    @SequenceGenerator(name = "playlists_id", sequenceName = "playlists_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
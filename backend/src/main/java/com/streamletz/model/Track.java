@@ -10,14 +10,18 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tracks")
+@Table(name = "tracks", indexes = {
+    @Index(columnList = "content_hash"),
+    @Index(columnList = "cover_art_url")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Track {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tracks_id")
+    @SequenceGenerator(name = "tracks_id", sequenceName = "tracks_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -37,6 +41,11 @@ public class Track {
     @Column
     private String coverArtUrl;
 
+    // Set when the cover is a generated gradient, so the covers job looks again once the
+    // remembered remote miss expires
+    @Column
+    private Boolean coverGenerated;
+
     @NotBlank
     @Column(nullable = false)
     private String filePath;
@@ -47,6 +56,9 @@ public class Track {
     @Column
     private Long fileSize;
 
+    @Column
+    private Long fileLastModified;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "uploaded_by")
     private User uploadedBy;
@@ -57,4 +69,13 @@ public class Track {
 
     @Column
     private Integer playCount = 0;
+
+    @Column
+    private LocalDateTime deletedAt;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column
+    private Long duplicateOf;
 }
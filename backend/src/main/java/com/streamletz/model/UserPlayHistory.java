@@ -0,0 +1,38 @@
+package com.streamletz.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "user_play_history", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_id", "track_id"})
+}, indexes = {
+    @Index(columnList = "user_id, last_played_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPlayHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "track_id", nullable = false)
+    private Track track;
+
+    @Column(name = "last_played_at", nullable = false)
+    private Instant lastPlayedAt;
+
+    @Column(nullable = false)
+    private Long playCount = 0L;
+}
@@ -0,0 +1,9 @@
+package com.streamletz.repository;
+
+import com.streamletz.model.LibraryJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LibraryJobRepository extends JpaRepository<LibraryJob, String> {
+}
@@ -4,10 +4,12 @@ import com.streamletz.model.LikedTrack;
 import com.streamletz.model.Track;
 import com.streamletz.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,8 +24,12 @@ public interface LikedTrackRepository extends JpaRepository<LikedTrack, Long> {
 
     void deleteByUserAndTrack(User user, Track track);
 
-    @Query("SELECT lt.track FROM LikedTrack lt WHERE lt.user = :user ORDER BY lt.likedAt DESC")
+    @Query("SELECT lt.track FROM LikedTrack lt WHERE lt.user = :user AND lt.track.deletedAt IS NULL ORDER BY lt.likedAt DESC")
     List<Track> findLikedTracksByUser(@Param("user") User user);
 
     long countByUser(User user);
+
+    @Modifying
+    @Query("DELETE FROM LikedTrack lt WHERE lt.track.id IN :trackIds")
+    int deleteByTrackIds(@Param("trackIds") Collection<Long> trackIds);
 }
@@ -0,0 +1,9 @@
+package com.streamletz.repository;
+
+import com.streamletz.model.PlayEventCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PlayEventCheckpointRepository extends JpaRepository<PlayEventCheckpoint, String> {
+}
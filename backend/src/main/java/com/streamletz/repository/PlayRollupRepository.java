@@ -0,0 +1,23 @@
+package com.streamletz.repository;
+
+import com.streamletz.model.PlayRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PlayRollupRepository extends JpaRepository<PlayRollup, Long> {
+
+    List<PlayRollup> findByTrackIdAndPeriodAndPeriodStartBetweenOrderByPeriodStartAsc(
+            Long trackId, PlayRollup.Period period, Instant from, Instant to);
+
+    @Modifying
+    @Query("DELETE FROM PlayRollup r WHERE r.trackId IN :trackIds")
+    int deleteByTrackIds(@Param("trackIds") Collection<Long> trackIds);
+}
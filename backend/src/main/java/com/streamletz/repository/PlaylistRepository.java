@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +29,7 @@ public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
     List<Playlist> searchPlaylists(@Param("user") User user, @Param("query") String query);
 
     Optional<Playlist> findByIdAndOwner(Long id, User owner);
+
+    @Query("SELECT DISTINCT p FROM Playlist p JOIN p.tracks t WHERE t.id IN :trackIds")
+    List<Playlist> findContainingTracks(@Param("trackIds") Collection<Long> trackIds);
 }
@@ -0,0 +1,18 @@
+package com.streamletz.repository;
+
+import java.time.LocalDateTime;
+
+public record TrackFileState(Long id, String filePath, Long fileSize, Long fileLastModified, LocalDateTime deletedAt,
+        String contentHash, Long duplicateOf) {
+
+    public boolean isTombstoned() {
+        return deletedAt != null;
+    }
+
+    // Tombstoned tracks never match, so a file that comes back is re-indexed and revived
+    public boolean matches(long size, long lastModified) {
+        return deletedAt == null
+                && fileSize != null && fileSize == size
+                && fileLastModified != null && fileLastModified == lastModified;
+    }
+}
@@ -1,22 +1,91 @@
 package com.streamletz.repository;
 
 import com.streamletz.model.Track;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TrackRepository extends JpaRepository<Track, Long> {
 
-    List<Track> findByTitleContainingIgnoreCase(String title);
+    List<Track> findByDeletedAtIsNullAndDuplicateOfIsNull();
 
-    List<Track> findByArtistContainingIgnoreCase(String artist);
+    Optional<Track> findByIdAndDeletedAtIsNull(Long id);
 
-    List<Track> findByAlbumContainingIgnoreCase(String album);
+    List<Track> findByTitleContainingIgnoreCaseAndDeletedAtIsNullAndDuplicateOfIsNull(String title);
+
+    List<Track> findByArtistContainingIgnoreCaseAndDeletedAtIsNullAndDuplicateOfIsNull(String artist);
+
+    List<Track> findByAlbumContainingIgnoreCaseAndDeletedAtIsNullAndDuplicateOfIsNull(String album);
 
     List<Track> findByUploadedById(Long userId);
 
     Optional<Track> findByFilePath(String filePath);
+
+    @Query("SELECT new com.streamletz.repository.TrackFileState(t.id, t.filePath, t.fileSize, t.fileLastModified, t.deletedAt, t.contentHash, t.duplicateOf) FROM Track t")
+    List<TrackFileState> findAllFileStates();
+
+    @Query("SELECT new com.streamletz.repository.TrackFileState(t.id, t.filePath, t.fileSize, t.fileLastModified, t.deletedAt, t.contentHash, t.duplicateOf) FROM Track t WHERE t.filePath IN :paths")
+    List<TrackFileState> findFileStatesByFilePathIn(@Param("paths") Collection<String> paths);
+
+    @Query("SELECT new com.streamletz.repository.TrackFileState(t.id, t.filePath, t.fileSize, t.fileLastModified, t.deletedAt, t.contentHash, t.duplicateOf) FROM Track t "
+            + "WHERE (t.filePath = :path OR t.filePath LIKE :prefix ESCAPE '\\') AND t.deletedAt IS NULL")
+    List<TrackFileState> findFileStatesMatching(@Param("path") String path, @Param("prefix") String prefix);
+
+    // Live tracks at the path or anywhere below it. Wildcards in the directory name are escaped so
+    // that a vanished "Disc_1" does not also match "Disc 1/...".
+    default List<TrackFileState> findFileStatesUnder(String path) {
+        String literal = path.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return findFileStatesMatching(path, literal + "/%");
+    }
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Track t SET t.filePath = :filePath WHERE t.id = :id")
+    int updateFilePath(@Param("id") Long id, @Param("filePath") String filePath);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Track t SET t.deletedAt = :deletedAt WHERE t.id IN :ids AND t.deletedAt IS NULL")
+    int tombstone(@Param("ids") Collection<Long> ids, @Param("deletedAt") LocalDateTime deletedAt);
+
+    Optional<Track> findFirstByContentHashAndDuplicateOfIsNullAndDeletedAtIsNull(String contentHash);
+
+    List<Track> findByIdGreaterThanAndDeletedAtIsNullAndDuplicateOfIsNullOrderByIdAsc(Long id, Pageable pageable);
+
+    long countByIdGreaterThanAndDeletedAtIsNullAndDuplicateOfIsNull(Long id);
+
+    // Hands each group of duplicates whose canonical track was tombstoned to its oldest live member
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE tracks d SET duplicate_of = NULLIF(p.new_id, d.id) "
+            + "FROM (SELECT duplicate_of AS old_id, MIN(id) AS new_id FROM tracks "
+            + "WHERE duplicate_of IN (:ids) AND deleted_at IS NULL GROUP BY duplicate_of) p "
+            + "WHERE d.duplicate_of = p.old_id AND d.deleted_at IS NULL", nativeQuery = true)
+    int promoteDuplicates(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Track d SET d.coverArtUrl = (SELECT c.coverArtUrl FROM Track c WHERE c.id = d.duplicateOf), "
+            + "d.coverGenerated = (SELECT c.coverGenerated FROM Track c WHERE c.id = d.duplicateOf) "
+            + "WHERE d.duplicateOf IS NOT NULL")
+    int syncDuplicateCovers();
+
+    @Query("SELECT t FROM Track t WHERE t.deletedAt < :before ORDER BY t.deletedAt")
+    List<Track> findTombstonedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Query("SELECT COUNT(t) > 0 FROM Track t WHERE t.coverArtUrl = :coverArtUrl AND t.id NOT IN :excludedIds")
+    boolean isCoverUsedByOthers(@Param("coverArtUrl") String coverArtUrl, @Param("excludedIds") Collection<Long> excludedIds);
+
+    @Query("SELECT t FROM Track t WHERE t.playCount > 0 AND t.deletedAt IS NULL ORDER BY t.playCount DESC")
+    List<Track> findMostPlayed(Pageable pageable);
 }
\ No newline at end of file
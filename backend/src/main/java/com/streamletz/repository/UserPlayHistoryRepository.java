@@ -0,0 +1,25 @@
+package com.streamletz.repository;
+
+import com.streamletz.model.Track;
+import com.streamletz.model.User;
+import com.streamletz.model.UserPlayHistory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserPlayHistoryRepository extends JpaRepository<UserPlayHistory, Long> {
+
+    @Query("SELECT h.track FROM UserPlayHistory h WHERE h.user = :user AND h.track.deletedAt IS NULL ORDER BY h.lastPlayedAt DESC")
+    List<Track> findRecentlyPlayedTracks(@Param("user") User user, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM UserPlayHistory h WHERE h.track.id IN :trackIds")
+    int deleteByTrackIds(@Param("trackIds") Collection<Long> trackIds);
+}
@@ -0,0 +1,228 @@
+package com.streamletz.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+
+// Hashes the audio payload of a file, leaving out tag blocks, so copies of the same
+// recording with different tags or artwork hash the same: ID3 and APE tags and FLAC metadata
+// blocks are skipped, MP4 hashes only its mdat boxes, WAV its fmt and data chunks and Ogg
+// every packet but the Vorbis or Opus comment header. Other formats get no content hash, as
+// a re-tag would change it, and are never linked as duplicates.
+public final class AudioContentHasher {
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final int ID3V1_SIZE = 128;
+    private static final int APE_FOOTER_SIZE = 32;
+    private static final int PROBE_SIZE = 64 * 1024;
+    private static final int OGG_PAGE_HEADER_SIZE = 27;
+
+    private AudioContentHasher() {
+    }
+
+    // Null when the format's tags cannot be told apart from its audio
+    public static String hash(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean hashed = switch (extension) {
+                case "mp3", "flac" -> {
+                    long start = payloadStart(channel, size, name);
+                    long end = name.endsWith(".mp3") ? mp3PayloadEnd(channel, start, size) : size;
+                    digestRange(channel, digest, start, end);
+                    yield true;
+                }
+                case "m4a", "m4b", "mp4" -> digestMp4(channel, digest, size);
+                case "wav" -> digestWav(channel, digest, size);
+                case "ogg", "oga", "opus" -> digestOgg(channel, digest, size);
+                default -> false;
+            };
+            return hashed ? HexFormat.of().formatHex(digest.digest()) : null;
+        }
+    }
+
+    // Streams through the range in mapped windows rather than one mapping per file
+    private static void digestRange(FileChannel channel, MessageDigest digest, long start, long end)
+            throws IOException {
+        for (long position = start; position < end; position += WINDOW_SIZE) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(WINDOW_SIZE, end - position));
+            digest.update(window);
+        }
+    }
+
+    // Tags live in moov/udta, which a tagger may grow or move; the samples are all in mdat
+    private static boolean digestMp4(FileChannel channel, MessageDigest digest, long size) throws IOException {
+        boolean found = false;
+        long position = 0;
+        while (position + 8 <= size) {
+            ByteBuffer header = read(channel, position, 16);
+            long boxSize = Integer.toUnsignedLong(header.getInt(0));
+            int headerSize = 8;
+            if (boxSize == 1 && header.remaining() >= 16) {
+                boxSize = header.getLong(8);
+                headerSize = 16;
+            } else if (boxSize == 0) {
+                boxSize = size - position;
+            }
+            if (boxSize < headerSize) {
+                return false;
+            }
+            if (header.getInt(4) == 0x6D646174) {
+                digestRange(channel, digest, position + headerSize, Math.min(size, position + boxSize));
+                found = true;
+            }
+            position += boxSize;
+        }
+        return found;
+    }
+
+    // LIST/INFO and id3 chunks carry the tags; the format and the samples are all that count
+    private static boolean digestWav(FileChannel channel, MessageDigest digest, long size) throws IOException {
+        ByteBuffer riff = read(channel, 0, 12).order(ByteOrder.LITTLE_ENDIAN);
+        if (riff.remaining() < 12 || riff.getInt(0) != 0x46464952 || riff.getInt(8) != 0x45564157) {
+            return false;
+        }
+        boolean found = false;
+        long position = 12;
+        while (position + 8 <= size) {
+            ByteBuffer header = read(channel, position, 8).order(ByteOrder.LITTLE_ENDIAN);
+            int id = header.getInt(0);
+            long chunkSize = Integer.toUnsignedLong(header.getInt(4));
+            if (id == 0x20746D66 || id == 0x61746164) {
+                digestRange(channel, digest, position + 8, Math.min(size, position + 8 + chunkSize));
+                found |= id == 0x61746164;
+            }
+            position += 8 + chunkSize + (chunkSize & 1);
+        }
+        return found;
+    }
+
+    // Page headers carry sequence numbers and checksums that shift when the comment header
+    // changes size, so only packet data is hashed, minus each stream's second packet, which
+    // is the comment header for both Vorbis and Opus
+    private static boolean digestOgg(FileChannel channel, MessageDigest digest, long size) throws IOException {
+        Map<Integer, long[]> packetIndexes = new HashMap<>();
+        long position = 0;
+        while (position + OGG_PAGE_HEADER_SIZE <= size) {
+            ByteBuffer header = read(channel, position, OGG_PAGE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < OGG_PAGE_HEADER_SIZE || header.getInt(0) != 0x5367674F) {
+                return false;
+            }
+            boolean firstPage = (header.get(5) & 0x02) != 0;
+            int serial = header.getInt(14);
+            int segmentCount = header.get(26) & 0xFF;
+            ByteBuffer lacing = read(channel, position + OGG_PAGE_HEADER_SIZE, segmentCount);
+            int bodySize = 0;
+            for (int i = 0; i < segmentCount; i++) {
+                bodySize += lacing.get(i) & 0xFF;
+            }
+            ByteBuffer body = read(channel, position + OGG_PAGE_HEADER_SIZE + segmentCount, bodySize);
+            if (body.remaining() < bodySize) {
+                return false;
+            }
+            if (firstPage && !isVorbisOrOpus(body)) {
+                return false;
+            }
+            long[] packetIndex = packetIndexes.computeIfAbsent(serial, key -> new long[1]);
+            int offset = 0;
+            for (int i = 0; i < segmentCount; i++) {
+                int length = lacing.get(i) & 0xFF;
+                if (packetIndex[0] != 1) {
+                    digest.update(body.slice(offset, length));
+                }
+                offset += length;
+                if (length < 255) {
+                    packetIndex[0]++;
+                }
+            }
+            position += OGG_PAGE_HEADER_SIZE + segmentCount + bodySize;
+        }
+        return !packetIndexes.isEmpty();
+    }
+
+    private static boolean isVorbisOrOpus(ByteBuffer packet) {
+        byte[] start = new byte[Math.min(8, packet.remaining())];
+        packet.get(0, start);
+        String magic = new String(start, StandardCharsets.ISO_8859_1);
+        return magic.startsWith("\u0001vorbis") || magic.equals("OpusHead");
+    }
+
+    private static long payloadStart(FileChannel channel, long size, String name) throws IOException {
+        ByteBuffer probe = read(channel, 0, (int) Math.min(PROBE_SIZE, size));
+        long start = Mp3FrameScanner.id3v2Size(probe);
+        if (name.endsWith(".flac")) {
+            start = flacAudioStart(channel, start, size);
+        }
+        return Math.min(start, size);
+    }
+
+    // FLAC metadata blocks (Vorbis comments, pictures, padding) sit between the marker and the frames
+    private static long flacAudioStart(FileChannel channel, long start, long size) throws IOException {
+        ByteBuffer marker = read(channel, start, 4);
+        if (marker.remaining() < 4 || marker.getInt(0) != 0x664C6143) {
+            return start;
+        }
+        long position = start + 4;
+        while (position + 4 <= size) {
+            ByteBuffer header = read(channel, position, 4);
+            if (header.remaining() < 4) {
+                break;
+            }
+            int value = header.getInt(0);
+            position += 4 + (value & 0xFFFFFF);
+            if ((value & 0x80000000) != 0) {
+                break;
+            }
+        }
+        return position;
+    }
+
+    private static long mp3PayloadEnd(FileChannel channel, long start, long size) throws IOException {
+        long end = size;
+        if (end - start >= ID3V1_SIZE) {
+            ByteBuffer tag = read(channel, end - ID3V1_SIZE, 3);
+            if (tag.get(0) == 'T' && tag.get(1) == 'A' && tag.get(2) == 'G') {
+                end -= ID3V1_SIZE;
+            }
+        }
+        if (end - start >= APE_FOOTER_SIZE) {
+            ByteBuffer footer = read(channel, end - APE_FOOTER_SIZE, APE_FOOTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (footer.get(0) == 'A' && footer.get(1) == 'P' && footer.get(2) == 'E' && footer.get(3) == 'T'
+                    && footer.get(4) == 'A' && footer.get(5) == 'G' && footer.get(6) == 'E' && footer.get(7) == 'X') {
+                long tagSize = Integer.toUnsignedLong(footer.getInt(12));
+                boolean hasHeader = (footer.getInt(20) & 0x80000000) != 0;
+                end -= tagSize + (hasHeader ? APE_FOOTER_SIZE : 0);
+            }
+        }
+        return Math.max(start, end);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(0, length));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,554 @@
+package com.streamletz.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.Tag;
+import org.jaudiotagger.tag.images.Artwork;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Reads title, artist, album, duration and optionally artwork with positioned reads of just
+// the tag regions: ID3v2/ID3v1 plus the Xing/VBRI header for MP3, STREAMINFO, VORBIS_COMMENT
+// and PICTURE blocks for FLAC, and mvhd plus the udta/meta/ilst atoms for MP4. Anything it
+// does not handle (other formats, unsynchronised or compressed ID3 frames, missing durations)
+// goes through jaudiotagger.
+@Slf4j
+public final class AudioTagReader {
+
+    private static final int MAX_TEXT_SIZE = 1024 * 1024;
+    private static final int MAX_ARTWORK_SIZE = 16 * 1024 * 1024;
+    private static final int SYNC_SEARCH_SIZE = 64 * 1024;
+    private static final int ID3V1_SIZE = 128;
+    private static final int FRONT_COVER = 3;
+
+    private AudioTagReader() {
+    }
+
+    public record AudioTags(String title, String artist, String album, Integer duration, byte[] artwork) {
+    }
+
+    public static AudioTags read(Path path, boolean withArtwork) throws Exception {
+        try {
+            AudioTags tags = readNative(path, withArtwork);
+            if (tags != null) {
+                return tags;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Native tag read failed for {}, using jaudiotagger: {}", path.getFileName(), e.getMessage());
+        }
+        return readJaudiotagger(path, withArtwork);
+    }
+
+    // Null when the file needs the full parser
+    static AudioTags readNative(Path path, boolean withArtwork) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (!name.endsWith(".mp3") && !name.endsWith(".flac") && !name.endsWith(".m4a")) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (name.endsWith(".mp3")) {
+                return readMp3(channel, withArtwork);
+            }
+            if (name.endsWith(".flac")) {
+                return readFlac(channel, withArtwork);
+            }
+            return readMp4(channel, withArtwork);
+        }
+    }
+
+    static AudioTags readJaudiotagger(Path path, boolean withArtwork) throws Exception {
+        AudioFile audioFile = AudioFileIO.read(path.toFile());
+        Tag tag = audioFile.getTag();
+        Fields fields = new Fields();
+        if (tag != null) {
+            fields.title = tag.getFirst(FieldKey.TITLE);
+            fields.artist = tag.getFirst(FieldKey.ARTIST);
+            fields.album = tag.getFirst(FieldKey.ALBUM);
+            if (withArtwork) {
+                Artwork artwork = tag.getFirstArtwork();
+                fields.artwork = artwork != null ? artwork.getBinaryData() : null;
+            }
+        }
+        return fields.toTags(audioFile.getAudioHeader().getTrackLength());
+    }
+
+    private static final class Fields {
+        String title;
+        String artist;
+        String album;
+        byte[] artwork;
+        boolean frontCover;
+
+        void offerArtwork(byte[] data, int pictureType) {
+            if (data.length > 0 && (artwork == null || (!frontCover && pictureType == FRONT_COVER))) {
+                artwork = data;
+                frontCover = pictureType == FRONT_COVER;
+            }
+        }
+
+        AudioTags toTags(Integer duration) {
+            return new AudioTags(title, artist, album, duration, artwork);
+        }
+    }
+
+    // MP3
+
+    private static AudioTags readMp3(FileChannel channel, boolean withArtwork) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = read(channel, 0, 10);
+        Fields fields = new Fields();
+        long audioStart = Mp3FrameScanner.id3v2Size(header);
+        if (audioStart > 0 && !readId3v2(channel, header, fields, withArtwork)) {
+            return null;
+        }
+
+        long audioEnd = size;
+        if (size - audioStart >= ID3V1_SIZE) {
+            ByteBuffer id3v1 = read(channel, size - ID3V1_SIZE, ID3V1_SIZE);
+            if (id3v1.get(0) == 'T' && id3v1.get(1) == 'A' && id3v1.get(2) == 'G') {
+                audioEnd -= ID3V1_SIZE;
+                if (fields.title == null) {
+                    fields.title = id3v1Text(id3v1, 3);
+                }
+                if (fields.artist == null) {
+                    fields.artist = id3v1Text(id3v1, 33);
+                }
+                if (fields.album == null) {
+                    fields.album = id3v1Text(id3v1, 63);
+                }
+            }
+        }
+
+        Integer duration = mp3Duration(channel, audioStart, audioEnd);
+        return duration != null ? fields.toTags(duration) : null;
+    }
+
+    private static boolean readId3v2(FileChannel channel, ByteBuffer header, Fields fields, boolean withArtwork)
+            throws IOException {
+        int major = header.get(3);
+        int flags = header.get(5) & 0xFF;
+        // Whole-tag unsynchronisation and v2.2 compression are rare enough to leave to jaudiotagger
+        if (major < 2 || major > 4 || (flags & 0x80) != 0 || (major == 2 && (flags & 0x40) != 0)) {
+            return false;
+        }
+        long end = 10L + synchsafe(header, 6);
+        long position = 10;
+        if (major > 2 && (flags & 0x40) != 0) {
+            ByteBuffer extended = read(channel, 10, 4);
+            position += major == 4 ? synchsafe(extended, 0) : 4 + extended.getInt(0);
+        }
+
+        int headerLength = major == 2 ? 6 : 10;
+        while (position + headerLength <= end) {
+            ByteBuffer frameHeader = read(channel, position, headerLength);
+            if (frameHeader.remaining() < headerLength || frameHeader.get(0) == 0) {
+                break;
+            }
+            String id = ascii(frameHeader, 0, major == 2 ? 3 : 4);
+            long frameSize = switch (major) {
+                case 2 -> ((frameHeader.get(3) & 0xFF) << 16) | ((frameHeader.get(4) & 0xFF) << 8)
+                        | (frameHeader.get(5) & 0xFF);
+                case 3 -> Integer.toUnsignedLong(frameHeader.getInt(4));
+                default -> synchsafe(frameHeader, 4);
+            };
+            long body = position + headerLength;
+            if (frameSize <= 0 || body + frameSize > end) {
+                break;
+            }
+            position = body + frameSize;
+
+            boolean text = id.equals("TIT2") || id.equals("TT2") || id.equals("TPE1") || id.equals("TP1")
+                    || id.equals("TALB") || id.equals("TAL");
+            boolean picture = withArtwork && (id.equals("APIC") || id.equals("PIC"));
+            if (!text && !picture) {
+                continue;
+            }
+            int formatFlags = major == 2 ? 0 : frameHeader.get(9) & 0xFF;
+            if ((major == 3 && (formatFlags & 0xE0) != 0) || (major == 4 && (formatFlags & 0x4F) != 0)) {
+                // Compressed, encrypted, grouped or unsynchronised frame
+                return false;
+            }
+            if (frameSize > (text ? MAX_TEXT_SIZE : MAX_ARTWORK_SIZE)) {
+                continue;
+            }
+
+            ByteBuffer frame = read(channel, body, (int) frameSize);
+            if (picture) {
+                readId3Picture(frame, major, fields);
+                continue;
+            }
+            String value = id3Text(frame);
+            switch (id) {
+                case "TIT2", "TT2" -> fields.title = value;
+                case "TPE1", "TP1" -> fields.artist = value;
+                default -> fields.album = value;
+            }
+        }
+        return true;
+    }
+
+    private static void readId3Picture(ByteBuffer frame, int major, Fields fields) {
+        if (frame.remaining() < 4) {
+            return;
+        }
+        int encoding = frame.get();
+        if (major == 2) {
+            frame.position(frame.position() + 3);
+        } else {
+            frame.position(terminator(frame, frame.position(), 1) + 1);
+        }
+        if (!frame.hasRemaining()) {
+            return;
+        }
+        int pictureType = frame.get() & 0xFF;
+        int width = encoding == 1 || encoding == 2 ? 2 : 1;
+        int descriptionEnd = terminator(frame, frame.position(), width);
+        if (descriptionEnd + width > frame.limit()) {
+            return;
+        }
+        frame.position(descriptionEnd + width);
+        byte[] data = new byte[frame.remaining()];
+        frame.get(data);
+        fields.offerArtwork(data, pictureType);
+    }
+
+    private static String id3Text(ByteBuffer frame) {
+        if (!frame.hasRemaining()) {
+            return null;
+        }
+        int encoding = frame.get();
+        Charset charset = switch (encoding) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        int start = frame.position();
+        // v2.4 separates multiple values with a terminator; the first one is the value
+        int end = terminator(frame, start, encoding == 1 || encoding == 2 ? 2 : 1);
+        String value = new String(frame.array(), start, end - start, charset);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String id3v1Text(ByteBuffer tag, int offset) {
+        int end = offset;
+        while (end < offset + 30 && tag.get(end) != 0) {
+            end++;
+        }
+        String value = new String(tag.array(), offset, end - offset, StandardCharsets.ISO_8859_1).strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Frame count from a Xing/Info or VBRI header when there is one, otherwise the CBR estimate
+    private static Integer mp3Duration(FileChannel channel, long audioStart, long audioEnd) throws IOException {
+        ByteBuffer buffer = read(channel, audioStart, (int) Math.min(SYNC_SEARCH_SIZE, audioEnd - audioStart));
+        int offset = 0;
+        Mp3FrameScanner.FrameHeader header = null;
+        for (; offset + 4 <= buffer.limit(); offset++) {
+            header = Mp3FrameScanner.parseHeader(buffer, offset);
+            if (header != null) {
+                int next = offset + header.frameLength();
+                if (next + 4 > buffer.limit() || Mp3FrameScanner.parseHeader(buffer, next) != null) {
+                    break;
+                }
+                header = null;
+            }
+        }
+        if (header == null) {
+            return null;
+        }
+
+        long frames = 0;
+        boolean mono = header.channelMode() == 3;
+        int sideInfo = header.version() == 3 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        int xing = offset + 4 + sideInfo;
+        int vbri = offset + 4 + 32;
+        if (xing + 12 <= buffer.limit() && (ascii(buffer, xing, 4).equals("Xing") || ascii(buffer, xing, 4).equals("Info"))
+                && (buffer.getInt(xing + 4) & 0x1) != 0) {
+            frames = Integer.toUnsignedLong(buffer.getInt(xing + 8));
+        } else if (vbri + 18 <= buffer.limit() && ascii(buffer, vbri, 4).equals("VBRI")) {
+            frames = Integer.toUnsignedLong(buffer.getInt(vbri + 14));
+        }
+
+        double seconds;
+        if (frames > 0) {
+            seconds = (double) frames * header.samplesPerFrame() / header.sampleRate();
+        } else {
+            seconds = (audioEnd - audioStart - offset) * 8.0 / (header.bitrateKbps() * 1000.0);
+        }
+        return (int) Math.round(seconds);
+    }
+
+    // FLAC
+
+    private static AudioTags readFlac(FileChannel channel, boolean withArtwork) throws IOException {
+        long size = channel.size();
+        long position = Mp3FrameScanner.id3v2Size(read(channel, 0, 10));
+        ByteBuffer marker = read(channel, position, 4);
+        if (marker.remaining() < 4 || marker.getInt(0) != 0x664C6143) {
+            return null;
+        }
+        position += 4;
+
+        Fields fields = new Fields();
+        long totalSamples = 0;
+        int sampleRate = 0;
+        while (position + 4 <= size) {
+            ByteBuffer blockHeader = read(channel, position, 4);
+            int value = blockHeader.getInt(0);
+            boolean last = (value & 0x80000000) != 0;
+            int type = (value >>> 24) & 0x7F;
+            int length = value & 0xFFFFFF;
+            long body = position + 4;
+            position = body + length;
+
+            if (type == 0 && length >= 18) {
+                ByteBuffer info = read(channel, body, 18);
+                sampleRate = ((info.get(10) & 0xFF) << 12) | ((info.get(11) & 0xFF) << 4) | ((info.get(12) & 0xFF) >> 4);
+                totalSamples = ((long) (info.get(13) & 0x0F) << 32) | Integer.toUnsignedLong(info.getInt(14));
+            } else if (type == 4 && length <= MAX_TEXT_SIZE) {
+                readVorbisComments(read(channel, body, length).order(ByteOrder.LITTLE_ENDIAN), fields);
+            } else if (type == 6 && withArtwork && length <= MAX_ARTWORK_SIZE) {
+                readFlacPicture(read(channel, body, length), fields);
+            }
+            if (last) {
+                break;
+            }
+        }
+        if (sampleRate == 0 || totalSamples == 0) {
+            return null;
+        }
+        return fields.toTags((int) Math.round((double) totalSamples / sampleRate));
+    }
+
+    private static void readVorbisComments(ByteBuffer block, Fields fields) {
+        if (block.remaining() < 8) {
+            return;
+        }
+        int vendorLength = block.getInt();
+        if (vendorLength < 0 || vendorLength + 4 > block.remaining()) {
+            return;
+        }
+        block.position(block.position() + vendorLength);
+        long count = Integer.toUnsignedLong(block.getInt());
+        for (long i = 0; i < count && block.remaining() >= 4; i++) {
+            int length = block.getInt();
+            if (length < 0 || length > block.remaining()) {
+                return;
+            }
+            String comment = new String(block.array(), block.position(), length, StandardCharsets.UTF_8);
+            block.position(block.position() + length);
+            int separator = comment.indexOf('=');
+            if (separator <= 0 || separator == comment.length() - 1) {
+                continue;
+            }
+            String key = comment.substring(0, separator).toUpperCase(Locale.ROOT);
+            String value = comment.substring(separator + 1);
+            switch (key) {
+                case "TITLE" -> fields.title = fields.title != null ? fields.title : value;
+                case "ARTIST" -> fields.artist = fields.artist != null ? fields.artist : value;
+                case "ALBUM" -> fields.album = fields.album != null ? fields.album : value;
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static void readFlacPicture(ByteBuffer block, Fields fields) {
+        if (block.remaining() < 32) {
+            return;
+        }
+        int pictureType = block.getInt();
+        if (!skipLengthPrefixed(block) || !skipLengthPrefixed(block) || block.remaining() < 20) {
+            return;
+        }
+        block.position(block.position() + 16);
+        int length = block.getInt();
+        if (length <= 0 || length > block.remaining()) {
+            return;
+        }
+        byte[] data = new byte[length];
+        block.get(data);
+        fields.offerArtwork(data, pictureType);
+    }
+
+    private static boolean skipLengthPrefixed(ByteBuffer block) {
+        if (block.remaining() < 4) {
+            return false;
+        }
+        int length = block.getInt();
+        if (length < 0 || length > block.remaining()) {
+            return false;
+        }
+        block.position(block.position() + length);
+        return true;
+    }
+
+    // MP4
+
+    private record Atom(String type, long body, long end) {
+    }
+
+    private static AudioTags readMp4(FileChannel channel, boolean withArtwork) throws IOException {
+        Atom moov = child(channel, 0, channel.size(), "moov");
+        if (moov == null) {
+            return null;
+        }
+        Integer duration = null;
+        Fields fields = new Fields();
+        for (Atom atom : children(channel, moov.body(), moov.end())) {
+            if (atom.type().equals("mvhd")) {
+                duration = mp4Duration(channel, atom);
+            } else if (atom.type().equals("udta")) {
+                Atom meta = child(channel, atom.body(), atom.end(), "meta");
+                if (meta != null) {
+                    // ISO meta is a full box with a version/flags word; QuickTime's goes straight to children
+                    ByteBuffer start = read(channel, meta.body(), 8);
+                    long body = start.remaining() == 8 && ascii(start, 4, 4).equals("hdlr") ? meta.body() : meta.body() + 4;
+                    Atom ilst = child(channel, body, meta.end(), "ilst");
+                    if (ilst != null) {
+                        readIlst(channel, ilst, fields, withArtwork);
+                    }
+                }
+            }
+        }
+        return duration != null ? fields.toTags(duration) : null;
+    }
+
+    private static Integer mp4Duration(FileChannel channel, Atom mvhd) throws IOException {
+        ByteBuffer header = read(channel, mvhd.body(), 32);
+        if (header.remaining() < 20) {
+            return null;
+        }
+        long timescale;
+        long duration;
+        if (header.get(0) == 1) {
+            if (header.remaining() < 32) {
+                return null;
+            }
+            timescale = Integer.toUnsignedLong(header.getInt(20));
+            duration = header.getLong(24);
+        } else {
+            timescale = Integer.toUnsignedLong(header.getInt(12));
+            duration = Integer.toUnsignedLong(header.getInt(16));
+        }
+        return timescale > 0 ? (int) Math.round((double) duration / timescale) : null;
+    }
+
+    private static void readIlst(FileChannel channel, Atom ilst, Fields fields, boolean withArtwork)
+            throws IOException {
+        for (Atom item : children(channel, ilst.body(), ilst.end())) {
+            boolean cover = item.type().equals("covr");
+            boolean text = item.type().equals("©nam") || item.type().equals("©ART")
+                    || item.type().equals("©alb");
+            if (!text && !(cover && withArtwork)) {
+                continue;
+            }
+            Atom data = child(channel, item.body(), item.end(), "data");
+            if (data == null || data.end() - data.body() < 8) {
+                continue;
+            }
+            long length = data.end() - data.body() - 8;
+            if (length > (cover ? MAX_ARTWORK_SIZE : MAX_TEXT_SIZE)) {
+                continue;
+            }
+            ByteBuffer payload = read(channel, data.body() + 8, (int) length);
+            if (cover) {
+                fields.offerArtwork(payload.array(), FRONT_COVER);
+                continue;
+            }
+            String value = new String(payload.array(), 0, payload.limit(), StandardCharsets.UTF_8);
+            switch (item.type()) {
+                case "©nam" -> fields.title = value;
+                case "©ART" -> fields.artist = value;
+                default -> fields.album = value;
+            }
+        }
+    }
+
+    private static Atom child(FileChannel channel, long from, long to, String type) throws IOException {
+        for (Atom atom : children(channel, from, to)) {
+            if (atom.type().equals(type)) {
+                return atom;
+            }
+        }
+        return null;
+    }
+
+    private static List<Atom> children(FileChannel channel, long from, long to) throws IOException {
+        List<Atom> atoms = new ArrayList<>();
+        long position = from;
+        while (position + 8 <= to) {
+            ByteBuffer header = read(channel, position, 16);
+            if (header.remaining() < 8) {
+                break;
+            }
+            long size = Integer.toUnsignedLong(header.getInt(0));
+            String type = ascii(header, 4, 4);
+            long headerLength = 8;
+            if (size == 1) {
+                if (header.remaining() < 16) {
+                    break;
+                }
+                size = header.getLong(8);
+                headerLength = 16;
+            } else if (size == 0) {
+                size = to - position;
+            }
+            if (size < headerLength || position + size > to) {
+                break;
+            }
+            atoms.add(new Atom(type, position + headerLength, position + size));
+            position += size;
+        }
+        return atoms;
+    }
+
+    // Helpers
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(0, length));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static int terminator(ByteBuffer buffer, int from, int width) {
+        int limit = buffer.limit();
+        for (int i = from; i + width <= limit; i += width) {
+            if (buffer.get(i) == 0 && (width == 1 || buffer.get(i + 1) == 0)) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private static String ascii(ByteBuffer buffer, int offset, int length) {
+        if (offset + length > buffer.limit()) {
+            return "";
+        }
+        return new String(buffer.array(), offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static long synchsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21)
+                | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7)
+                | (buffer.get(offset + 3) & 0x7F);
+    }
+}
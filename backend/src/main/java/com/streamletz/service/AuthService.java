@@ -7,6 +7,10 @@ import com.streamletz.util.dto.LoginRequest;
 import com.streamletz.util.dto.RegisterRequest;
 import com.streamletz.util.dto.AuthResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,14 +22,21 @@ import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AuthService {
 
+    private static final String ADMIN_ROLE = "ROLE_ADMIN";
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthenticationManager authenticationManager;
     private final UserDetailsServiceImpl userDetailsService;
 
+    // Accounts allowed to use /api/admin/**; granted on registration or at the next startup
+    @Value("${music.admin.usernames:}")
+    private Set<String> adminUsernames;
+
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
             throw new RuntimeException("Username already exists");
@@ -42,6 +53,9 @@ public class AuthService {
 
         Set<String> roles = new HashSet<>();
         roles.add("ROLE_USER");
+        if (adminUsernames.contains(user.getUsername())) {
+            roles.add(ADMIN_ROLE);
+        }
         user.setRoles(roles);
 
         userRepository.save(user);
@@ -64,4 +78,16 @@ public class AuthService {
 
         return new AuthResponse(token, user.getUsername(), user.getEmail(), user.getProfileImage());
     }
-}
\ No newline at end of file
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void promoteConfiguredAdmins() {
+        for (String username : adminUsernames) {
+            userRepository.findByUsername(username).ifPresent(user -> {
+                if (user.getRoles().add(ADMIN_ROLE)) {
+                    userRepository.save(user);
+                    log.info("Granted admin role to {}", username);
+                }
+            });
+        }
+    }
+}
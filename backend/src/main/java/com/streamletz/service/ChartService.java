@@ -0,0 +1,189 @@
+package com.streamletz.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.streamletz.repository.TrackRepository;
+import com.streamletz.util.dto.ChartEntryResponse;
+import com.streamletz.util.dto.ChartResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+@Service
+@Slf4j
+public class ChartService {
+
+    private static final String SEED_SQL =
+            "SELECT r.track_id, r.period_start, r.play_count, t.title, t.artist, t.album "
+                    + "FROM play_rollups r JOIN tracks t ON t.id = r.track_id "
+                    + "WHERE r.period = 'HOUR' AND r.period_start >= ?";
+
+    // Scores below a tenth of a play are noise and only cost memory
+    private static final double MIN_SCORE = 0.1;
+
+    public enum Window {
+        HOUR(Duration.ofHours(1)),
+        DAY(Duration.ofDays(1)),
+        WEEK(Duration.ofDays(7));
+
+        private final Duration duration;
+
+        Window(Duration duration) {
+            this.duration = duration;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+    }
+
+    private record TrackInfo(Long id, String title, String artist, String album) {
+    }
+
+    private record AlbumKey(String album, String artist) {
+    }
+
+    private final class WindowCounters {
+        final DecayedCounters<Long> tracks;
+        final DecayedCounters<String> artists;
+        final DecayedCounters<AlbumKey> albums;
+
+        WindowCounters(Window window) {
+            tracks = new DecayedCounters<>(window.getDuration());
+            artists = new DecayedCounters<>(window.getDuration());
+            albums = new DecayedCounters<>(window.getDuration());
+        }
+
+        void add(TrackInfo track, double plays, long timestamp) {
+            tracks.add(track.id(), plays, timestamp);
+            artists.add(track.artist(), plays, timestamp);
+            if (track.album() != null && !track.album().isBlank()) {
+                albums.add(new AlbumKey(track.album(), track.artist()), plays, timestamp);
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadingCache<Long, TrackInfo> trackInfo;
+    private final Map<Window, WindowCounters> counters = new EnumMap<>(Window.class);
+    private final int chartSize;
+    private final int maxTracked;
+
+    // Rebuilt on every refresh so chart reads never walk the counters
+    private volatile Map<Window, ChartResponse> charts = Map.of();
+
+    public ChartService(TrackRepository trackRepository, JdbcTemplate jdbcTemplate,
+            @Value("${music.charts.size:100}") int chartSize,
+            @Value("${music.charts.max-tracked:50000}") int maxTracked) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chartSize = Math.max(1, chartSize);
+        this.maxTracked = Math.max(this.chartSize, maxTracked);
+        this.trackInfo = Caffeine.newBuilder()
+                .maximumSize(this.maxTracked)
+                .expireAfterWrite(Duration.ofHours(1))
+                .build(id -> trackRepository.findById(id)
+                        .map(track -> new TrackInfo(track.getId(), track.getTitle(), track.getArtist(), track.getAlbum()))
+                        .orElse(null));
+        for (Window window : Window.values()) {
+            counters.put(window, new WindowCounters(window));
+        }
+    }
+
+    public void record(Long trackId) {
+        TrackInfo track = trackInfo.get(trackId);
+        if (track == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (WindowCounters windowCounters : counters.values()) {
+            windowCounters.add(track, 1, now);
+        }
+    }
+
+    public ChartResponse getChart(Window window, int limit) {
+        ChartResponse chart = charts.get(window);
+        if (chart == null) {
+            refresh();
+            chart = charts.get(window);
+        }
+        int size = Math.max(0, Math.min(limit, chartSize));
+        return new ChartResponse(chart.getWindow(), chart.getGeneratedAt(),
+                chart.getTracks().subList(0, Math.min(size, chart.getTracks().size())),
+                chart.getArtists().subList(0, Math.min(size, chart.getArtists().size())),
+                chart.getAlbums().subList(0, Math.min(size, chart.getAlbums().size())));
+    }
+
+    @Scheduled(fixedDelayString = "${music.charts.refresh-interval:PT10S}")
+    public synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        Map<Window, ChartResponse> updated = new EnumMap<>(Window.class);
+        counters.forEach((window, windowCounters) -> {
+            windowCounters.tracks.prune(MIN_SCORE, maxTracked, now);
+            windowCounters.artists.prune(MIN_SCORE, maxTracked, now);
+            windowCounters.albums.prune(MIN_SCORE, maxTracked, now);
+
+            List<ChartEntryResponse> tracks = rank(windowCounters.tracks.top(chartSize, now), id -> {
+                // Loaded again when it expired, so tracks that stay charted without recent plays keep their names
+                TrackInfo track = trackInfo.get(id);
+                return track != null
+                        ? new ChartEntryResponse(0, id, track.title(), track.artist(), track.album(), 0)
+                        : new ChartEntryResponse(0, id, null, null, null, 0);
+            });
+            List<ChartEntryResponse> artists = rank(windowCounters.artists.top(chartSize, now),
+                    artist -> new ChartEntryResponse(0, null, null, artist, null, 0));
+            List<ChartEntryResponse> albums = rank(windowCounters.albums.top(chartSize, now),
+                    album -> new ChartEntryResponse(0, null, null, album.artist(), album.album(), 0));
+            updated.put(window, new ChartResponse(window.name(), Instant.ofEpochMilli(now), tracks, artists, albums));
+        });
+        charts = updated;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedFromRollups() {
+        Instant since = Instant.now().minus(Window.WEEK.getDuration().multipliedBy(2));
+        try {
+            int[] rows = { 0 };
+            jdbcTemplate.query(SEED_SQL, rs -> {
+                TrackInfo track = new TrackInfo(rs.getLong("track_id"), rs.getString("title"),
+                        rs.getString("artist"), rs.getString("album"));
+                trackInfo.put(track.id(), track);
+                // Credit each hourly bucket at its midpoint
+                long timestamp = rs.getTimestamp("period_start").getTime() + Duration.ofMinutes(30).toMillis();
+                long plays = rs.getLong("play_count");
+                for (WindowCounters windowCounters : counters.values()) {
+                    windowCounters.add(track, plays, timestamp);
+                }
+                rows[0]++;
+            }, Timestamp.from(since));
+            refresh();
+            log.info("Seeded charts from {} hourly rollups", rows[0]);
+        } catch (RuntimeException e) {
+            log.warn("Could not seed charts from play rollups: {}", e.getMessage());
+        }
+    }
+
+    private static <K> List<ChartEntryResponse> rank(List<DecayedCounters.Entry<K>> entries,
+            Function<K, ChartEntryResponse> mapper) {
+        List<ChartEntryResponse> ranked = new ArrayList<>(entries.size());
+        for (DecayedCounters.Entry<K> entry : entries) {
+            ChartEntryResponse response = mapper.apply(entry.key());
+            response.setRank(ranked.size() + 1);
+            response.setScore(Math.round(entry.score() * 100) / 100.0);
+            ranked.add(response);
+        }
+        return ranked;
+    }
+}
@@ -0,0 +1,181 @@
+package com.streamletz.service;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+public final class CoverImages {
+
+    static final int TARGET_SIZE = 400;
+    private static final Color[][] GRADIENT_COLORS = {
+            { new Color(138, 43, 226), new Color(75, 0, 130) },
+            { new Color(255, 20, 147), new Color(220, 20, 60) },
+            { new Color(30, 144, 255), new Color(0, 191, 255) },
+            { new Color(255, 69, 0), new Color(255, 140, 0) },
+            { new Color(148, 0, 211), new Color(72, 61, 139) },
+            { new Color(0, 128, 128), new Color(0, 191, 191) },
+            { new Color(255, 0, 127), new Color(127, 0, 255) },
+            { new Color(220, 20, 60), new Color(255, 105, 180) },
+            { new Color(0, 100, 200), new Color(100, 150, 255) },
+            { new Color(255, 127, 0), new Color(255, 69, 0) }
+    };
+
+    private CoverImages() {
+    }
+
+    // Fits the image into a black TARGET_SIZE square
+    static BufferedImage resize(byte[] imageBytes) throws IOException {
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(imageBytes));
+
+        if (original == null) {
+            throw new IOException("Could not read image data");
+        }
+
+        int originalWidth = original.getWidth();
+        int originalHeight = original.getHeight();
+        double ratio = (double) originalWidth / originalHeight;
+
+        int newWidth, newHeight;
+        if (ratio > 1) {
+            newWidth = TARGET_SIZE;
+            newHeight = (int) (TARGET_SIZE / ratio);
+        } else {
+            newHeight = TARGET_SIZE;
+            newWidth = (int) (TARGET_SIZE * ratio);
+        }
+
+        BufferedImage resized = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = resized.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(original, 0, 0, newWidth, newHeight, null);
+        g2d.dispose();
+
+        BufferedImage finalImage = new BufferedImage(TARGET_SIZE, TARGET_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = finalImage.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, TARGET_SIZE, TARGET_SIZE);
+
+        int x = (TARGET_SIZE - newWidth) / 2;
+        int y = (TARGET_SIZE - newHeight) / 2;
+        g.drawImage(resized, x, y, null);
+        g.dispose();
+
+        return finalImage;
+    }
+
+    // Fits the image into a size x size box. Halving in steps before the last bilinear pass keeps
+    // small thumbnails from aliasing the way a single large downscale does.
+    static BufferedImage scale(BufferedImage source, int size) {
+        double ratio = Math.min((double) size / source.getWidth(), (double) size / source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    static BufferedImage gradient(String title, String artist) {
+        int width = TARGET_SIZE;
+        int height = TARGET_SIZE;
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+        // Picked from the text so regenerating a gradient lands on the same stored cover
+        Color[] selectedColors = GRADIENT_COLORS[Math.floorMod(Objects.hash(title, artist), GRADIENT_COLORS.length)];
+
+        GradientPaint gradient = new GradientPaint(
+                0, 0, selectedColors[0],
+                width, height, selectedColors[1]);
+
+        g2d.setPaint(gradient);
+        g2d.fillRect(0, 0, width, height);
+
+        g2d.setColor(new Color(255, 255, 255, 180));
+        int iconSize = 120;
+        int iconX = (width - iconSize) / 2;
+        int iconY = (height - iconSize) / 2 - 30;
+
+        g2d.fillRoundRect(iconX + 30, iconY + 70, 25, 50, 15, 15);
+        g2d.fillOval(iconX + 15, iconY + 100, 40, 40);
+        g2d.fillRect(iconX + 50, iconY + 20, 8, 90);
+        g2d.fillOval(iconX + 35, iconY + 90, 40, 40);
+
+        g2d.setColor(Color.WHITE);
+        g2d.setFont(new Font("Arial", Font.BOLD, 24));
+        FontMetrics fm = g2d.getFontMetrics();
+
+        title = title != null ? title : "";
+        if (title.length() > 20) {
+            title = title.substring(0, 17) + "...";
+        }
+
+        int titleWidth = fm.stringWidth(title);
+        int titleX = (width - titleWidth) / 2;
+        int titleY = height - 80;
+
+        g2d.setColor(new Color(0, 0, 0, 100));
+        g2d.drawString(title, titleX + 2, titleY + 2);
+
+        g2d.setColor(Color.WHITE);
+        g2d.drawString(title, titleX, titleY);
+
+        g2d.setFont(new Font("Arial", Font.PLAIN, 18));
+        fm = g2d.getFontMetrics();
+
+        artist = artist != null ? artist : "";
+        if (artist.length() > 25) {
+            artist = artist.substring(0, 22) + "...";
+        }
+
+        int artistWidth = fm.stringWidth(artist);
+        int artistX = (width - artistWidth) / 2;
+        int artistY = height - 50;
+
+        g2d.setColor(new Color(0, 0, 0, 100));
+        g2d.drawString(artist, artistX + 2, artistY + 2);
+
+        g2d.setColor(new Color(255, 255, 255, 200));
+        g2d.drawString(artist, artistX, artistY);
+
+        g2d.dispose();
+
+        return image;
+    }
+
+    // Written to a temporary file first so a reader never sees a half-written cover; the temp
+    // name is per thread because workers storing the same artwork write the same target
+    static void writeJpeg(BufferedImage image, Path outputPath) throws IOException {
+        Path temp = outputPath.resolveSibling(outputPath.getFileName() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            if (!ImageIO.write(image, "jpg", temp.toFile())) {
+                throw new IOException("No JPEG writer available");
+            }
+            Files.move(temp, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
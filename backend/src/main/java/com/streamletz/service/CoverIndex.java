@@ -0,0 +1,51 @@
+package com.streamletz.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One listing of the cover store, so verifying a track's cover is a set lookup instead of a
+// filesystem probe per track. Only the hash-prefix subdirectories are read.
+final class CoverIndex {
+
+    private final Set<String> fileNames = ConcurrentHashMap.newKeySet();
+
+    private CoverIndex() {
+    }
+
+    static CoverIndex scan(Path coversDir) throws IOException {
+        CoverIndex index = new CoverIndex();
+        if (!Files.isDirectory(coversDir)) {
+            return index;
+        }
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(coversDir,
+                path -> Files.isDirectory(path) && CoverStore.SHARD_NAME.matcher(path.getFileName().toString()).matches())) {
+            for (Path shard : shards) {
+                try (DirectoryStream<Path> covers = Files.newDirectoryStream(shard)) {
+                    for (Path cover : covers) {
+                        String fileName = cover.getFileName().toString();
+                        if (CoverStore.isHashName(fileName)) {
+                            index.fileNames.add(fileName);
+                        }
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    int size() {
+        return fileNames.size();
+    }
+
+    boolean contains(String fileName) {
+        return fileNames.contains(fileName);
+    }
+
+    void add(String fileName) {
+        fileNames.add(fileName);
+    }
+}
@@ -0,0 +1,238 @@
+package com.streamletz.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Cover generation in stages: fetching artwork (file reads, remote lookups) and writing JPEGs
+// to the cover store run on virtual threads, decoding and resizing on a pool sized to the CPU,
+// and cover URLs are written back in JDBC batches. A bound on covers in flight keeps memory flat.
+@Component
+@Slf4j
+public class CoverPipeline {
+
+    private static final String UPDATE_COVER_SQL =
+            "UPDATE tracks SET cover_art_url = ?, cover_generated = ? WHERE id = ?";
+
+    public enum CoverSource {
+        EXISTING, EMBEDDED, REMOTE, GRADIENT
+    }
+
+    // Either image bytes to render, or the URL of a cover that is already in the store
+    public record Artwork(byte[] data, CoverSource source, String storedUrl) {
+
+        public Artwork(byte[] data, CoverSource source) {
+            this(data, source, null);
+        }
+
+        public static Artwork stored(String storedUrl, CoverSource source) {
+            return new Artwork(null, source, storedUrl);
+        }
+    }
+
+    // A null trackId means the caller stores the URL itself; gradientFallback renders a
+    // gradient when there is no usable artwork instead of giving up
+    public record CoverTask(Long trackId, String trackPath, Callable<Artwork> artwork, String title,
+            String artist, boolean gradientFallback) {
+    }
+
+    public record StoredCover(String url, CoverSource source) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CoverStore coverStore;
+    private final int batchSize;
+    private final int renderThreads;
+    private final ExecutorService ioPool;
+    private final ExecutorService renderPool;
+    private final Semaphore inFlight;
+    private final List<Object[]> pendingUpdates = new ArrayList<>();
+
+    private final Stage fetchStage = new Stage("fetch");
+    private final Stage renderStage = new Stage("render");
+    private final Stage writeStage = new Stage("write");
+    private final Stage persistStage = new Stage("persist");
+
+    public CoverPipeline(JdbcTemplate jdbcTemplate, CoverStore coverStore,
+            @Value("${music.covers.render-threads:0}") int renderThreads,
+            @Value("${music.covers.max-in-flight:64}") int maxInFlight,
+            @Value("${music.covers.batch-size:200}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.coverStore = coverStore;
+        this.batchSize = Math.max(1, batchSize);
+        this.renderThreads = renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors();
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.ioPool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cover-io-", 0).factory());
+        this.renderPool = Executors.newFixedThreadPool(this.renderThreads,
+                Thread.ofPlatform().name("cover-render-", 0).daemon().factory());
+    }
+
+    // Blocks while the pipeline is full. The future completes with the stored cover, or null
+    // when there was no artwork and no gradient was wanted.
+    public CompletableFuture<StoredCover> submit(CoverTask task) throws InterruptedException {
+        inFlight.acquire();
+        return CompletableFuture
+                .supplyAsync(() -> fetchStage.time(() -> fetch(task)), ioPool)
+                .thenApplyAsync(artwork -> renderStage.time(() -> render(task, artwork)), renderPool)
+                .thenApplyAsync(rendered -> writeStage.time(() -> write(task, rendered)), ioPool)
+                .whenComplete((source, error) -> inFlight.release());
+    }
+
+    // Queues a cover URL change for the next batch; generated marks a gradient fallback
+    public void updateCoverUrl(Long trackId, String coverUrl, boolean generated) {
+        List<Object[]> batch = null;
+        synchronized (pendingUpdates) {
+            pendingUpdates.add(new Object[] { coverUrl, generated, trackId });
+            if (pendingUpdates.size() >= batchSize) {
+                batch = new ArrayList<>(pendingUpdates);
+                pendingUpdates.clear();
+            }
+        }
+        if (batch != null) {
+            persist(batch);
+        }
+    }
+
+    // Writes the URL updates still queued. Callers wait for their own covers first; the
+    // pipeline is shared with scans, so waiting for it to empty could wait on their covers too.
+    public void flushUpdates() {
+        List<Object[]> batch;
+        synchronized (pendingUpdates) {
+            batch = new ArrayList<>(pendingUpdates);
+            pendingUpdates.clear();
+        }
+        if (!batch.isEmpty()) {
+            persist(batch);
+        }
+    }
+
+    public void resetStats() {
+        for (Stage stage : List.of(fetchStage, renderStage, writeStage, persistStage)) {
+            stage.reset();
+        }
+    }
+
+    public String statsSummary() {
+        return String.join(", ", fetchStage.summary(), renderStage.summary() + " on " + renderThreads + " threads",
+                writeStage.summary(), persistStage.summary());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+        ioPool.shutdownNow();
+    }
+
+    private record Rendered(BufferedImage image, CoverSource source, String storedUrl) {
+    }
+
+    private Artwork fetch(CoverTask task) {
+        try {
+            return task.artwork() != null ? task.artwork().call() : null;
+        } catch (Exception e) {
+            log.debug("Could not fetch artwork for {}: {}", task.trackPath(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Rendered render(CoverTask task, Artwork artwork) {
+        if (artwork != null && artwork.storedUrl() != null) {
+            return new Rendered(null, artwork.source(), artwork.storedUrl());
+        }
+        if (artwork != null && artwork.data() != null) {
+            try {
+                return new Rendered(CoverImages.resize(artwork.data()), artwork.source(), null);
+            } catch (Exception e) {
+                log.warn("Unreadable {} artwork for {}: {}", artwork.source().name().toLowerCase(Locale.ROOT),
+                        task.trackPath(), e.getMessage());
+            }
+        }
+        if (!task.gradientFallback()) {
+            return null;
+        }
+        return new Rendered(CoverImages.gradient(task.title(), task.artist()), CoverSource.GRADIENT, null);
+    }
+
+    private StoredCover write(CoverTask task, Rendered rendered) {
+        if (rendered == null) {
+            return null;
+        }
+        String coverUrl = rendered.storedUrl();
+        if (coverUrl == null) {
+            try {
+                coverUrl = CoverStore.url(coverStore.store(rendered.image()));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }
+        if (task.trackId() != null) {
+            updateCoverUrl(task.trackId(), coverUrl, rendered.source() == CoverSource.GRADIENT);
+        }
+        return new StoredCover(coverUrl, rendered.source());
+    }
+
+    private void persist(List<Object[]> batch) {
+        try {
+            persistStage.time(() -> jdbcTemplate.batchUpdate(UPDATE_COVER_SQL, batch), batch.size());
+        } catch (RuntimeException e) {
+            // Tracks without a stored URL are retried by the next verification run, and their
+            // covers come out under the same hash
+            log.warn("Failed to store {} cover URLs: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private static final class Stage {
+        private final String name;
+        private final LongAdder items = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private volatile long startNanos = System.nanoTime();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        <T> T time(Supplier<T> work) {
+            return time(work, 1);
+        }
+
+        <T> T time(Supplier<T> work, int count) {
+            long start = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                busyNanos.add(System.nanoTime() - start);
+                items.add(count);
+            }
+        }
+
+        void reset() {
+            items.reset();
+            busyNanos.reset();
+            startNanos = System.nanoTime();
+        }
+
+        // Throughput over wall time since the last reset, and the average time spent per item
+        String summary() {
+            long count = items.sum();
+            double seconds = Math.max(1, System.nanoTime() - startNanos) / 1e9;
+            double averageMillis = count > 0 ? busyNanos.sum() / 1e6 / count : 0;
+            return String.format(Locale.ROOT, "%s %d (%.1f/s, %.1f ms avg)", name, count, count / seconds,
+                    averageMillis);
+        }
+    }
+}
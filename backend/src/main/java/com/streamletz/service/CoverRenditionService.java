@@ -0,0 +1,156 @@
+package com.streamletz.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Downscaled copies of the cover masters for thumbnails and list views. A rendition is built
+// on first request, kept on disk under <renditions>/<size>/<shard>/<cover> and in a byte-bounded LRU,
+// and concurrent requests for the same one share a single resize.
+@Service
+@Slf4j
+public class CoverRenditionService {
+
+    private record Key(String fileName, int size, long masterModified) {
+    }
+
+    private final CoverStore coverStore;
+    private final Path renditionsDir;
+    private final List<Integer> sizes;
+    private final ExecutorService renderPool;
+    private final AsyncCache<Key, byte[]> cache;
+
+    public CoverRenditionService(CoverStore coverStore,
+            @Value("${music.covers.renditions.path:${music.covers.path:/covers}/renditions}") String renditionsPath,
+            @Value("${music.covers.renditions.sizes:64,128,256,400}") List<Integer> sizes,
+            @Value("${music.covers.renditions.cache-size:32MB}") DataSize cacheSize) {
+        this.coverStore = coverStore;
+        this.renditionsDir = Paths.get(renditionsPath).normalize();
+        this.sizes = sizes.stream().sorted().distinct().toList();
+        this.renderPool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cover-rendition-", 0).factory());
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheSize.toBytes())
+                .<Key, byte[]>weigher((key, data) -> data.length)
+                .executor(renderPool)
+                .buildAsync();
+    }
+
+    public boolean isSupportedSize(int size) {
+        return sizes.contains(size);
+    }
+
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    // Null when the master is missing or the name does not resolve inside the cover store
+    public Path resolveMaster(String fileName) {
+        Path master = coverStore.resolve(fileName);
+        if (master == null || master.startsWith(renditionsDir) || !Files.isRegularFile(master)) {
+            return null;
+        }
+        return master;
+    }
+
+    public byte[] getRendition(Path master, int size) throws IOException {
+        if (!isSupportedSize(size)) {
+            throw new IllegalArgumentException("Unsupported cover size: " + size);
+        }
+        Key key = new Key(master.getFileName().toString(), size, Files.getLastModifiedTime(master).toMillis());
+        try {
+            return cache.get(key, (k, executor) -> CompletableFuture.supplyAsync(() -> load(master, k), executor)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Drops every rendition of a cover whose master is being deleted
+    public void evict(String fileName) {
+        cache.synchronous().asMap().keySet().removeIf(key -> key.fileName().equals(fileName));
+        for (int size : sizes) {
+            try {
+                Files.deleteIfExists(renditionPath(fileName, size));
+            } catch (IOException e) {
+                log.warn("Could not delete {}px rendition of {}: {}", size, fileName, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+
+    private byte[] load(Path master, Key key) {
+        try {
+            Path cached = renditionPath(key.fileName(), key.size());
+            // A rendition on disk is only reused if it was made from this version of the master
+            if (Files.isRegularFile(cached) && Files.getLastModifiedTime(cached).toMillis() == key.masterModified()) {
+                return Files.readAllBytes(cached);
+            }
+
+            BufferedImage image = ImageIO.read(master.toFile());
+            if (image == null) {
+                throw new IOException("Could not read cover " + key.fileName());
+            }
+            if (image.getWidth() <= key.size() && image.getHeight() <= key.size()) {
+                // Never upscale; the master already is this rendition
+                return Files.readAllBytes(master);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!ImageIO.write(CoverImages.scale(image, key.size()), "jpg", out)) {
+                throw new IOException("No JPEG writer available");
+            }
+            byte[] data = out.toByteArray();
+            store(cached, data, key.masterModified());
+            return data;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void store(Path target, byte[] data, long masterModified) {
+        Path temp = target.resolveSibling(target.getFileName() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            Files.createDirectories(target.getParent());
+            Files.write(temp, data);
+            Files.setLastModifiedTime(temp, FileTime.fromMillis(masterModified));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Served from memory anyway; the next miss tries to store it again
+            log.warn("Could not store rendition {}: {}", target, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Nothing left to clean up
+            }
+        }
+    }
+
+    private Path renditionPath(String fileName, int size) {
+        return renditionsDir.resolve(Integer.toString(size)).resolve(CoverStore.shard(fileName)).resolve(fileName);
+    }
+}
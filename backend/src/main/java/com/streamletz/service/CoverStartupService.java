@@ -2,368 +2,169 @@ package com.streamletz.service;
 
 import com.streamletz.model.Track;
 import com.streamletz.repository.TrackRepository;
+import com.streamletz.service.CoverPipeline.Artwork;
+import com.streamletz.service.CoverPipeline.CoverSource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jaudiotagger.audio.AudioFile;
-import org.jaudiotagger.audio.AudioFileIO;
-import org.jaudiotagger.tag.Tag;
-import org.jaudiotagger.tag.images.Artwork;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CoverStartupService {
     private final TrackRepository trackRepository;
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    @Value("${music.covers.path:/covers}")
-    private String coversPath;
+    private final CoverPipeline coverPipeline;
+    private final CoverStore coverStore;
+    private final CoverStoreMigration coverStoreMigration;
+    private final RemoteCoverResolver remoteCoverResolver;
 
     @Value("${music.storage.path}")
     private String musicStoragePath;
 
-    private static final int TARGET_SIZE = 400;
-    private static final Color[][] GRADIENT_COLORS = {
-            { new Color(138, 43, 226), new Color(75, 0, 130) },
-            { new Color(255, 20, 147), new Color(220, 20, 60) },
-            { new Color(30, 144, 255), new Color(0, 191, 255) },
-            { new Color(255, 69, 0), new Color(255, 140, 0) },
-            { new Color(148, 0, 211), new Color(72, 61, 139) },
-            { new Color(0, 128, 128), new Color(0, 191, 191) },
-            { new Color(255, 0, 127), new Color(127, 0, 255) },
-            { new Color(220, 20, 60), new Color(255, 105, 180) },
-            { new Color(0, 100, 200), new Color(100, 150, 255) },
-            { new Color(255, 127, 0), new Color(255, 69, 0) }
-    };
+    private static final int PAGE_SIZE = 500;
 
-    @EventListener(ApplicationReadyEvent.class)
-    public void checkAndGenerateMissingCovers() {
+    // Walks live tracks in id order so a cancelled or interrupted run can resume after the
+    // last finished track
+    public void checkAndGenerateMissingCovers(JobProgress progress, long afterId) {
         log.info("Starting cover verification and generation process...");
 
         try {
-            Path coversDirectory = Paths.get(coversPath);
+            Path coversDirectory = coverStore.getCoversDir();
             if (!Files.exists(coversDirectory)) {
                 Files.createDirectories(coversDirectory);
-                log.info("Created covers directory: {}", coversPath);
+                log.info("Created covers directory: {}", coversDirectory);
             }
+            coverStoreMigration.migrateLegacyCovers();
 
-            List<Track> allTracks = trackRepository.findAll();
-            log.info("Found {} tracks in database", allTracks.size());
-
-            int existingCovers = 0;
-            int extractedFromFile = 0;
-            int downloadedFromItunes = 0;
-            int generatedCovers = 0;
-            int errorCount = 0;
+            CoverIndex coverIndex = CoverIndex.scan(coversDirectory);
+            progress.setTotal(trackRepository.countByIdGreaterThanAndDeletedAtIsNullAndDuplicateOfIsNull(afterId));
+            log.info("Found {} tracks to verify against {} cover files", progress.getTotal(), coverIndex.size());
 
-            for (Track track : allTracks) {
-                try {
-                    String sanitizedName = track.getFilePath().replaceAll("[^a-zA-Z0-9.-]", "_");
-                    Path coversDir = Paths.get(coversPath);
-                    boolean foundExisting = false;
-                    String foundCoverFile = null;
-                    try {
-                        if (Files.exists(coversDir) && Files.isDirectory(coversDir)) {
-                            try (java.util.stream.Stream<Path> files = Files.list(coversDir)) {
-                                java.util.Optional<Path> match = files
-                                        .filter(p -> p.getFileName().toString().contains(sanitizedName)).findFirst();
-                                if (match.isPresent()) {
-                                    foundExisting = true;
-                                    foundCoverFile = match.get().getFileName().toString();
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.warn("Error searching for existing cover for track {}: {}", track.getFilePath(),
-                                e.getMessage());
-                    }
-                    if (foundExisting) {
-                        existingCovers++;
-                        String expectedUrl = "/covers/" + foundCoverFile;
-                        if (track.getCoverArtUrl() == null || !track.getCoverArtUrl().equals(expectedUrl)) {
-                            track.setCoverArtUrl(expectedUrl);
-                            trackRepository.save(track);
-                            log.debug("Updated cover URL for track {} (existing cover)", track.getFilePath());
-                        }
-                        continue;
-                    }
-
-                    String coverFileName = System.currentTimeMillis() + "_" + sanitizedName + ".jpg";
-                    Path coverFilePath = Paths.get(coversPath, coverFileName);
-                    String expectedUrl = "/covers/" + coverFileName;
-                    boolean coverSet = false;
-
-                    coverSet = trySetCoverFromMetadata(track, coverFilePath, expectedUrl);
-                    if (coverSet) {
-                        extractedFromFile++;
-                        log.info("Extracted embedded artwork for track: {}", track.getFilePath());
-                        continue;
-                    }
-
-                    coverSet = trySetCoverFromItunes(track, coverFilePath, expectedUrl);
-                    if (coverSet) {
-                        downloadedFromItunes++;
-                        log.info("Downloaded iTunes artwork for track: {} - {}", track.getArtist(), track.getTitle());
-                        continue;
+            Map<CoverSource, LongAdder> counts = new EnumMap<>(CoverSource.class);
+            for (CoverSource source : CoverSource.values()) {
+                counts.put(source, new LongAdder());
+            }
+            LongAdder errorCount = new LongAdder();
+            coverPipeline.resetStats();
+            remoteCoverResolver.resetStats();
+
+            long lastId = afterId;
+            List<Track> page;
+            do {
+                page = trackRepository.findByIdGreaterThanAndDeletedAtIsNullAndDuplicateOfIsNullOrderByIdAsc(lastId,
+                        PageRequest.of(0, PAGE_SIZE));
+                List<CompletableFuture<?>> pending = new ArrayList<>();
+                for (Track track : page) {
+                    if (progress.isCancelled()) {
+                        break;
                     }
-
-                    coverSet = trySetCoverWithGradient(track, coverFilePath, expectedUrl);
-                    if (coverSet) {
-                        generatedCovers++;
-                        log.info("Generated gradient cover for track: {}", track.getFilePath());
+                    lastId = track.getId();
+                    if (hasExistingCover(track, coverIndex)) {
+                        counts.get(CoverSource.EXISTING).increment();
+                        progress.advance();
                         continue;
                     }
-                } catch (Exception e) {
-                    log.error("Error processing cover for track {}: {}", track.getFilePath(), e.getMessage());
-                    errorCount++;
+                    CoverPipeline.CoverTask task = new CoverPipeline.CoverTask(track.getId(), track.getFilePath(),
+                            () -> findArtwork(track), track.getTitle(), track.getArtist(), true);
+                    pending.add(coverPipeline.submit(task).handle((stored, error) -> {
+                        if (error != null) {
+                            log.error("Error processing cover for track {}: {}", track.getFilePath(), error.getMessage());
+                            errorCount.increment();
+                            progress.fail(track.getFilePath() + ": " + error.getMessage());
+                        } else {
+                            log.debug("{} cover {} for track {}", stored.source(), stored.url(), track.getFilePath());
+                            counts.get(stored.source()).increment();
+                            progress.advance();
+                        }
+                        return null;
+                    }));
                 }
-            }
-
-            log.info("Cover verification completed:");
-            log.info("  - Total tracks: {}", allTracks.size());
-            log.info("  - Existing covers: {}", existingCovers);
-            log.info("  - Extracted from files: {}", extractedFromFile);
-            log.info("  - Downloaded from iTunes: {}", downloadedFromItunes);
-            log.info("  - Generated gradients: {}", generatedCovers);
-            log.info("  - Errors: {}", errorCount);
+                // Everything up to lastId is done once the page drains, so that is the checkpoint
+                CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+                coverPipeline.flushUpdates();
+                progress.checkpoint(lastId);
+            } while (page.size() == PAGE_SIZE && !progress.isCancelled());
+
+            // Duplicates share the audio of a canonical track, so they reuse its cover
+            int syncedDuplicates = trackRepository.syncDuplicateCovers();
+
+            log.info("Cover verification {}:", progress.isCancelled() ? "cancelled" : "completed");
+            log.info("  - Tracks processed: {}", progress.getProcessed());
+            log.info("  - Existing covers: {}", counts.get(CoverSource.EXISTING).sum());
+            log.info("  - Extracted from files: {}", counts.get(CoverSource.EMBEDDED).sum());
+            log.info("  - Resolved remotely: {}", counts.get(CoverSource.REMOTE).sum());
+            log.info("  - Generated gradients: {}", counts.get(CoverSource.GRADIENT).sum());
+            log.info("  - Duplicates sharing a cover: {}", syncedDuplicates);
+            log.info("  - Errors: {}", errorCount.sum());
+            log.info("  - Pipeline: {}", coverPipeline.statsSummary());
+            log.info("  - Remote lookups: {}", remoteCoverResolver.statsSummary());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Cover verification interrupted");
         } catch (Exception e) {
             log.error("Error during cover verification process: {}", e.getMessage(), e);
         }
     }
 
-    private boolean trySetCoverFromMetadata(Track track, Path coverFilePath, String expectedUrl) {
-        byte[] embeddedArt = extractEmbeddedArtwork(track, musicStoragePath);
-        if (embeddedArt != null) {
-            try {
-                saveAndResizeCover(embeddedArt, coverFilePath);
-                track.setCoverArtUrl(expectedUrl);
-                trackRepository.save(track);
-                return true;
-            } catch (Exception e) {
-                log.error("Error saving cover from metadata for track {}: {}", track.getFilePath(), e.getMessage());
-            }
-        } else {
-            log.info("No embedded artwork found for track: {} (metaadatból nem sikerült borítót kinyerni)",
-                    track.getFilePath());
+    // A track without a stored cover is simply regenerated; identical artwork hashes to the
+    // cover that already exists, so nothing is written twice. A gradient only stands in until
+    // the remote miss for its album expires, then the track is looked up again.
+    private boolean hasExistingCover(Track track, CoverIndex coverIndex) {
+        String current = track.getCoverArtUrl();
+        if (current == null || !current.startsWith(CoverStore.URL_PREFIX)
+                || !coverIndex.contains(current.substring(CoverStore.URL_PREFIX.length()))) {
+            return false;
         }
-        return false;
+        return !Boolean.TRUE.equals(track.getCoverGenerated())
+                || !remoteCoverResolver.isRetryDue(track.getArtist(), track.getAlbum(), track.getTitle());
     }
 
-    private boolean trySetCoverFromItunes(Track track, Path coverFilePath, String expectedUrl) {
-        byte[] itunesArt = downloadFromItunes(track.getArtist(), track.getTitle());
-        if (itunesArt != null) {
-            try {
-                saveAndResizeCover(itunesArt, coverFilePath);
-                track.setCoverArtUrl(expectedUrl);
-                trackRepository.save(track);
-                return true;
-            } catch (Exception e) {
-                log.error("Error saving cover from iTunes for track {}: {}", track.getFilePath(), e.getMessage());
-            }
+    // Runs on the pipeline's I/O stage; null leaves the track to a generated gradient
+    private Artwork findArtwork(Track track) {
+        byte[] embeddedArt = extractEmbeddedArtwork(track);
+        if (embeddedArt != null) {
+            return new Artwork(embeddedArt, CoverSource.EMBEDDED);
         }
-        return false;
-    }
-
-    private boolean trySetCoverWithGradient(Track track, Path coverFilePath, String expectedUrl) {
-        try {
-            generateGradientCover(track, coverFilePath);
-            track.setCoverArtUrl(expectedUrl);
-            trackRepository.save(track);
-            return true;
-        } catch (Exception e) {
-            log.error("Error saving gradient cover for track {}: {}", track.getFilePath(), e.getMessage());
+        // Resolved once per album and shared by all of its tracks
+        Optional<String> remote = remoteCoverResolver.resolve(track.getArtist(), track.getAlbum(), track.getTitle());
+        if (remote.isPresent()) {
+            return Artwork.stored(remote.get(), CoverSource.REMOTE);
+        }
+        // Still nothing for a retried gradient: keep the one already stored
+        if (Boolean.TRUE.equals(track.getCoverGenerated()) && track.getCoverArtUrl() != null) {
+            return Artwork.stored(track.getCoverArtUrl(), CoverSource.GRADIENT);
         }
-        return false;
+        return null;
     }
 
-    private byte[] extractEmbeddedArtwork(Track track, String musicStoragePath) {
+    private byte[] extractEmbeddedArtwork(Track track) {
         try {
             Path musicFilePath = Paths.get(musicStoragePath, track.getFilePath());
             if (!Files.exists(musicFilePath)) {
                 log.info("Music file not found for embedded artwork extraction: {}", musicFilePath);
                 return null;
             }
-            AudioFile audioFile = AudioFileIO.read(musicFilePath.toFile());
-            Tag tag = audioFile.getTag();
-            if (tag == null) {
-                log.info("No tag found in file for embedded artwork: {}", musicFilePath);
-                return null;
-            }
-            Artwork artwork = tag.getFirstArtwork();
-            if (artwork != null && artwork.getBinaryData() != null) {
-                log.info("Embedded artwork found for file: {}", musicFilePath);
-                return artwork.getBinaryData();
-            } else {
-                log.info("No embedded artwork present in tag for file: {}", musicFilePath);
+            byte[] artwork = AudioTagReader.read(musicFilePath, true).artwork();
+            if (artwork == null) {
+                log.debug("No embedded artwork present in file: {}", musicFilePath);
             }
+            return artwork;
         } catch (Exception e) {
             log.warn("Exception during embedded artwork extraction for {}: {}", track.getFilePath(), e.getMessage());
         }
         return null;
     }
-
-    private byte[] downloadFromItunes(String artist, String title) {
-        try {
-            String searchTerm = (artist + " " + title).replaceAll(" ", "+");
-            String apiUrl = "https://itunes.apple.com/search?term=" + searchTerm + "&limit=1";
-
-            String response = restTemplate.getForObject(apiUrl, String.class);
-
-            if (response == null) {
-                return null;
-            }
-
-            JsonNode root = objectMapper.readTree(response);
-            int resultCount = root.path("resultCount").asInt(0);
-
-            if (resultCount > 0) {
-                JsonNode results = root.path("results");
-                String artworkUrl = results.get(0).path("artworkUrl100").asText();
-
-                if (artworkUrl != null && !artworkUrl.isEmpty()) {
-                    String highResUrl = artworkUrl.replace("100x100", "600x600");
-
-                    if (highResUrl != null && !highResUrl.isEmpty()) {
-                        byte[] imageBytes = restTemplate.getForObject(highResUrl, byte[].class);
-                        if (imageBytes != null) {
-                            return imageBytes;
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.debug("Could not download iTunes artwork for {} - {}: {}",
-                    artist, title, e.getMessage());
-        }
-
-        return null;
-    }
-
-    private void saveAndResizeCover(byte[] imageBytes, Path outputPath) throws IOException {
-        BufferedImage original = ImageIO.read(new ByteArrayInputStream(imageBytes));
-
-        if (original == null) {
-            throw new IOException("Could not read image data");
-        }
-
-        int originalWidth = original.getWidth();
-        int originalHeight = original.getHeight();
-        double ratio = (double) originalWidth / originalHeight;
-
-        int newWidth, newHeight;
-        if (ratio > 1) {
-            newWidth = TARGET_SIZE;
-            newHeight = (int) (TARGET_SIZE / ratio);
-        } else {
-            newHeight = TARGET_SIZE;
-            newWidth = (int) (TARGET_SIZE * ratio);
-        }
-
-        BufferedImage resized = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = resized.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.drawImage(original, 0, 0, newWidth, newHeight, null);
-        g2d.dispose();
-
-        BufferedImage finalImage = new BufferedImage(TARGET_SIZE, TARGET_SIZE, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = finalImage.createGraphics();
-        g.setColor(Color.BLACK);
-        g.fillRect(0, 0, TARGET_SIZE, TARGET_SIZE);
-
-        int x = (TARGET_SIZE - newWidth) / 2;
-        int y = (TARGET_SIZE - newHeight) / 2;
-        g.drawImage(resized, x, y, null);
-        g.dispose();
-
-        ImageIO.write(finalImage, "jpg", outputPath.toFile());
-    }
-
-    private void generateGradientCover(Track track, Path outputPath) throws IOException {
-        int width = TARGET_SIZE;
-        int height = TARGET_SIZE;
-
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = image.createGraphics();
-
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-
-        Color[] selectedColors = GRADIENT_COLORS[(int) (Math.random() * GRADIENT_COLORS.length)];
-
-        GradientPaint gradient = new GradientPaint(
-                0, 0, selectedColors[0],
-                width, height, selectedColors[1]);
-
-        g2d.setPaint(gradient);
-        g2d.fillRect(0, 0, width, height);
-
-        g2d.setColor(new Color(255, 255, 255, 180));
-        int iconSize = 120;
-        int iconX = (width - iconSize) / 2;
-        int iconY = (height - iconSize) / 2 - 30;
-
-        g2d.fillRoundRect(iconX + 30, iconY + 70, 25, 50, 15, 15);
-        g2d.fillOval(iconX + 15, iconY + 100, 40, 40);
-        g2d.fillRect(iconX + 50, iconY + 20, 8, 90);
-        g2d.fillOval(iconX + 35, iconY + 90, 40, 40);
-
-        g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 24));
-        FontMetrics fm = g2d.getFontMetrics();
-
-        String title = track.getTitle();
-        if (title.length() > 20) {
-            title = title.substring(0, 17) + "...";
-        }
-
-        int titleWidth = fm.stringWidth(title);
-        int titleX = (width - titleWidth) / 2;
-        int titleY = height - 80;
-
-        g2d.setColor(new Color(0, 0, 0, 100));
-        g2d.drawString(title, titleX + 2, titleY + 2);
-
-        g2d.setColor(Color.WHITE);
-        g2d.drawString(title, titleX, titleY);
-
-        g2d.setFont(new Font("Arial", Font.PLAIN, 18));
-        fm = g2d.getFontMetrics();
-
-        String artist = track.getArtist();
-        if (artist.length() > 25) {
-            artist = artist.substring(0, 22) + "...";
-        }
-
-        int artistWidth = fm.stringWidth(artist);
-        int artistX = (width - artistWidth) / 2;
-        int artistY = height - 50;
-
-        g2d.setColor(new Color(0, 0, 0, 100));
-        g2d.drawString(artist, artistX + 2, artistY + 2);
-
-        g2d.setColor(new Color(255, 255, 255, 200));
-        g2d.drawString(artist, artistX, artistY);
-
-        g2d.dispose();
-
-        ImageIO.write(image, "jpg", outputPath.toFile());
-    }
-}
\ No newline at end of file
+}
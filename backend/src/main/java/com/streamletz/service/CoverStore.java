@@ -0,0 +1,97 @@
+package com.streamletz.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+// Content-addressed covers: a cover is named after the SHA-256 of its normalized pixels and
+// lives under a subdirectory named after the first two hex digits of that hash. Tracks with
+// the same artwork share one file and one URL, so clients cache an album's art once.
+@Component
+public class CoverStore {
+
+    public static final String URL_PREFIX = "/covers/";
+
+    private static final Pattern HASH_NAME = Pattern.compile("[0-9a-f]{64}\\.jpg");
+    static final Pattern SHARD_NAME = Pattern.compile("[0-9a-f]{2}");
+
+    private final Path coversDir;
+
+    public CoverStore(@Value("${music.covers.path:/covers}") String coversPath) {
+        this.coversDir = Paths.get(coversPath).normalize();
+    }
+
+    public Path getCoversDir() {
+        return coversDir;
+    }
+
+    // Writes the image unless a cover with the same pixels already exists; returns its file name
+    String store(BufferedImage image) throws IOException {
+        String fileName = contentHash(image) + ".jpg";
+        Path target = resolve(fileName);
+        if (!Files.isRegularFile(target)) {
+            Files.createDirectories(target.getParent());
+            CoverImages.writeJpeg(image, target);
+        }
+        return fileName;
+    }
+
+    public static boolean isHashName(String fileName) {
+        return HASH_NAME.matcher(fileName).matches();
+    }
+
+    // Subdirectory for a cover file name; empty for the timestamped names of older releases,
+    // which sit directly in the covers directory until they are migrated
+    public static String shard(String fileName) {
+        return isHashName(fileName) ? fileName.substring(0, 2) : "";
+    }
+
+    // Null when the name does not stay inside the covers directory
+    public Path resolve(String fileName) {
+        Path path = coversDir.resolve(shard(fileName)).resolve(fileName).normalize();
+        return path.startsWith(coversDir) ? path : null;
+    }
+
+    // Null for URLs that do not point into the store
+    public Path resolveUrl(String coverUrl) {
+        if (coverUrl == null || !coverUrl.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        return resolve(coverUrl.substring(URL_PREFIX.length()));
+    }
+
+    public static String url(String fileName) {
+        return URL_PREFIX + fileName;
+    }
+
+    static String contentHash(BufferedImage image) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        ByteBuffer bytes = ByteBuffer.allocate(width * Integer.BYTES);
+        digest.update(ByteBuffer.allocate(2 * Integer.BYTES).putInt(width).putInt(height).array());
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            bytes.clear();
+            bytes.asIntBuffer().put(row);
+            digest.update(bytes.array());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
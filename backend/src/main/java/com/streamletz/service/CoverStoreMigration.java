@@ -0,0 +1,95 @@
+package com.streamletz.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Moves covers written by older releases (<millis>_<track path>.jpg, one per track, directly in
+// the covers directory) into the content-addressed store. Identical artwork collapses into one
+// file, tracks are repointed in batches, and a legacy file is only deleted once no row refers
+// to it, so an interrupted migration simply continues on the next run.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CoverStoreMigration {
+
+    private static final String REPOINT_SQL = "UPDATE tracks SET cover_art_url = ? WHERE cover_art_url = ?";
+    private static final int BATCH_SIZE = 200;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CoverStore coverStore;
+    private final CoverRenditionService coverRenditionService;
+
+    public void migrateLegacyCovers() throws IOException {
+        Path coversDir = coverStore.getCoversDir();
+        if (!Files.isDirectory(coversDir)) {
+            return;
+        }
+
+        // Listed up front because the files are deleted as they are migrated
+        List<Path> legacyCovers = new ArrayList<>();
+        try (DirectoryStream<Path> covers = Files.newDirectoryStream(coversDir, CoverStoreMigration::isLegacyCover)) {
+            covers.forEach(legacyCovers::add);
+        }
+
+        int migrated = 0;
+        Set<String> stored = new HashSet<>();
+        List<String> batchFiles = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (Path legacy : legacyCovers) {
+            String legacyName = legacy.getFileName().toString();
+            String fileName;
+            try {
+                fileName = coverStore.store(CoverImages.resize(Files.readAllBytes(legacy)));
+            } catch (IOException e) {
+                log.warn("Leaving unreadable legacy cover {}: {}", legacyName, e.getMessage());
+                continue;
+            }
+            stored.add(fileName);
+            batchFiles.add(legacyName);
+            batch.add(new Object[] { CoverStore.url(fileName), CoverStore.url(legacyName) });
+            if (batch.size() >= BATCH_SIZE) {
+                migrated += repoint(batch, batchFiles);
+            }
+        }
+        migrated += repoint(batch, batchFiles);
+
+        if (migrated > 0) {
+            log.info("Migrated {} legacy covers into {} stored covers", migrated, stored.size());
+        }
+    }
+
+    private int repoint(List<Object[]> batch, List<String> legacyNames) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(REPOINT_SQL, batch);
+        for (String legacyName : legacyNames) {
+            coverRenditionService.evict(legacyName);
+            try {
+                Files.deleteIfExists(coverStore.getCoversDir().resolve(legacyName));
+            } catch (IOException e) {
+                log.warn("Could not delete legacy cover {}: {}", legacyName, e.getMessage());
+            }
+        }
+        int count = legacyNames.size();
+        batch.clear();
+        legacyNames.clear();
+        return count;
+    }
+
+    private static boolean isLegacyCover(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.endsWith(".jpg") && !CoverStore.isHashName(fileName) && Files.isRegularFile(path);
+    }
+}
@@ -0,0 +1,101 @@
+package com.streamletz.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public final class DecayedCounters<K> {
+
+    // Rebase well before exp() overflows a double (~709)
+    private static final double MAX_EXPONENT = 64;
+
+    private final double tauMillis;
+    private final ConcurrentHashMap<K, Double> scores = new ConcurrentHashMap<>();
+    private final ReadWriteLock rebaseLock = new ReentrantReadWriteLock();
+
+    // Scores are stored relative to the landmark: adding a hit at time t adds exp((t - landmark) / tau),
+    // so nothing needs decaying on write and the ranking never changes as time passes.
+    private volatile long landmark;
+
+    public DecayedCounters(Duration window) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.tauMillis = window.toMillis();
+        this.landmark = System.currentTimeMillis();
+    }
+
+    public record Entry<K>(K key, double score) {
+    }
+
+    public void add(K key, double count, long timestamp) {
+        rebaseLock.readLock().lock();
+        try {
+            double weight = count * Math.exp((timestamp - landmark) / tauMillis);
+            scores.merge(key, weight, Double::sum);
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    public List<Entry<K>> top(int k, long now) {
+        PriorityQueue<Map.Entry<K, Double>> heap = new PriorityQueue<>(k + 1, Map.Entry.comparingByValue());
+        double scale;
+        rebaseLock.readLock().lock();
+        try {
+            scale = Math.exp((landmark - now) / tauMillis);
+            for (Map.Entry<K, Double> entry : scores.entrySet()) {
+                if (heap.size() < k) {
+                    heap.add(Map.entry(entry.getKey(), entry.getValue()));
+                } else if (entry.getValue() > heap.peek().getValue()) {
+                    heap.poll();
+                    heap.add(Map.entry(entry.getKey(), entry.getValue()));
+                }
+            }
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+        List<Entry<K>> result = new ArrayList<>(heap.size());
+        for (Map.Entry<K, Double> entry : heap) {
+            result.add(new Entry<>(entry.getKey(), entry.getValue() * scale));
+        }
+        result.sort(Comparator.comparingDouble((Entry<K> entry) -> entry.score()).reversed());
+        return result;
+    }
+
+    // Drops keys whose decayed score fell below minScore and, past maxKeys, the weakest remaining ones
+    public void prune(double minScore, int maxKeys, long now) {
+        if ((now - landmark) / tauMillis > MAX_EXPONENT) {
+            rebase(now);
+        }
+        double threshold = minScore * Math.exp((now - landmark) / tauMillis);
+        scores.values().removeIf(score -> score < threshold);
+        if (scores.size() > maxKeys) {
+            List<Double> ordered = new ArrayList<>(scores.values());
+            ordered.sort(Comparator.reverseOrder());
+            double cutoff = ordered.get(maxKeys - 1);
+            scores.values().removeIf(score -> score < cutoff);
+        }
+    }
+
+    private void rebase(long now) {
+        rebaseLock.writeLock().lock();
+        try {
+            double scale = Math.exp((landmark - now) / tauMillis);
+            scores.replaceAll((key, score) -> score * scale);
+            landmark = now;
+        } finally {
+            rebaseLock.writeLock().unlock();
+        }
+    }
+}
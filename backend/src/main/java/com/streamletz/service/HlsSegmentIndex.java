@@ -0,0 +1,24 @@
+package com.streamletz.service;
+
+import java.util.List;
+
+public record HlsSegmentIndex(long fileSize, long lastModified, List<Segment> segments) {
+
+    public boolean matches(TrackDescriptor track) {
+        return fileSize == track.size() && lastModified == track.lastModified();
+    }
+
+    public int targetDuration() {
+        return (int) Math.ceil(segments.stream()
+                .mapToDouble(Segment::duration)
+                .max()
+                .orElse(0));
+    }
+
+    public record Segment(long start, long end, double startTime, double duration) {
+
+        public long length() {
+            return end - start;
+        }
+    }
+}
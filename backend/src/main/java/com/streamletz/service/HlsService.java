@@ -0,0 +1,124 @@
+package com.streamletz.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+public class HlsService {
+
+    private static final String TIMESTAMP_OWNER = "com.apple.streaming.transportStreamTimestamp";
+    private static final int MPEG_TS_CLOCK = 90_000;
+
+    private final TrackService trackService;
+    private final Cache<Long, HlsSegmentIndex> indexes;
+    private final double segmentSeconds;
+
+    public HlsService(TrackService trackService,
+            @Value("${music.hls.segment-seconds:6}") double segmentSeconds,
+            @Value("${music.hls.index-cache.max-size:1000}") long maxIndexes) {
+        this.trackService = trackService;
+        this.segmentSeconds = segmentSeconds;
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(maxIndexes)
+                .build();
+    }
+
+    public String getPlaylist(Long trackId) {
+        TrackDescriptor track = trackService.getTrackDescriptor(trackId);
+        HlsSegmentIndex index = getIndex(track);
+        String version = Long.toHexString(track.lastModified());
+
+        StringBuilder playlist = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:3\n")
+                .append("#EXT-X-TARGETDURATION:").append(index.targetDuration()).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:0\n")
+                .append("#EXT-X-PLAYLIST-TYPE:VOD\n");
+        List<HlsSegmentIndex.Segment> segments = index.segments();
+        for (int i = 0; i < segments.size(); i++) {
+            playlist.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", segments.get(i).duration()))
+                    .append("hls/").append(i).append(".mp3?v=").append(version).append('\n');
+        }
+        return playlist.append("#EXT-X-ENDLIST\n").toString();
+    }
+
+    public HlsSegment getSegment(Long trackId, int sequence) {
+        TrackDescriptor track = trackService.getTrackDescriptor(trackId);
+        List<HlsSegmentIndex.Segment> segments = getIndex(track).segments();
+        if (sequence < 0 || sequence >= segments.size()) {
+            // Players treat a missing segment differently from a bad request
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "HLS segment not found: " + sequence);
+        }
+        HlsSegmentIndex.Segment segment = segments.get(sequence);
+        String trackEtag = track.etag();
+        String etag = trackEtag.substring(0, trackEtag.length() - 1) + "-" + sequence + "\"";
+        return new HlsSegment(track, segment, timestampTag(segment.startTime()), etag);
+    }
+
+    private HlsSegmentIndex getIndex(TrackDescriptor track) {
+        if (!track.path().getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".mp3")) {
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "HLS is only available for MP3 tracks");
+        }
+        HlsSegmentIndex index = indexes.get(track.trackId(), id -> buildIndex(track));
+        if (!index.matches(track)) {
+            indexes.invalidate(track.trackId());
+            index = indexes.get(track.trackId(), id -> buildIndex(track));
+        }
+        return index;
+    }
+
+    private HlsSegmentIndex buildIndex(TrackDescriptor track) {
+        HlsSegmentIndex index;
+        try {
+            index = Mp3FrameScanner.segment(track.path(), track.size(), track.lastModified(), segmentSeconds);
+        } catch (IOException e) {
+            throw new RuntimeException("Error segmenting track: " + e.getMessage());
+        }
+        if (index.segments().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    "No MPEG audio frames found in track " + track.trackId());
+        }
+        return index;
+    }
+
+    // Packed audio segments carry their start time in an ID3 PRIV frame (RFC 8216, section 3.4)
+    private static byte[] timestampTag(double startTime) {
+        byte[] owner = TIMESTAMP_OWNER.getBytes(StandardCharsets.ISO_8859_1);
+        int frameSize = owner.length + 1 + 8;
+        long timestamp = Math.round(startTime * MPEG_TS_CLOCK) & 0x1FFFFFFFFL;
+
+        ByteArrayOutputStream tag = new ByteArrayOutputStream(20 + frameSize);
+        tag.writeBytes(new byte[] { 'I', 'D', '3', 4, 0, 0 });
+        tag.writeBytes(synchsafe(10 + frameSize));
+        tag.writeBytes(new byte[] { 'P', 'R', 'I', 'V' });
+        tag.writeBytes(synchsafe(frameSize));
+        tag.writeBytes(new byte[] { 0, 0 });
+        tag.writeBytes(owner);
+        tag.write(0);
+        tag.writeBytes(ByteBuffer.allocate(8).putLong(timestamp).array());
+        return tag.toByteArray();
+    }
+
+    private static byte[] synchsafe(int value) {
+        return new byte[] {
+                (byte) ((value >> 21) & 0x7F),
+                (byte) ((value >> 14) & 0x7F),
+                (byte) ((value >> 7) & 0x7F),
+                (byte) (value & 0x7F)
+        };
+    }
+
+    public record HlsSegment(TrackDescriptor track, HlsSegmentIndex.Segment segment, byte[] header, String etag) {
+    }
+}
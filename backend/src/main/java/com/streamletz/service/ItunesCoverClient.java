@@ -0,0 +1,60 @@
+package com.streamletz.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+@Component
+@ConditionalOnProperty(name = "music.covers.remote.provider", havingValue = "itunes", matchIfMissing = true)
+public class ItunesCoverClient implements RemoteCoverClient {
+
+    private static final String SEARCH_URL = "https://itunes.apple.com/search";
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ItunesCoverClient(
+            @Value("${music.covers.remote.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${music.covers.remote.read-timeout:PT10S}") Duration readTimeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public byte[] find(CoverQuery query) throws IOException {
+        boolean byAlbum = query.album() != null;
+        URI searchUri = UriComponentsBuilder.fromUriString(SEARCH_URL)
+                .queryParam("term", query.artist() + " " + (byAlbum ? query.album() : query.title()))
+                .queryParam("entity", byAlbum ? "album" : "song")
+                .queryParam("limit", 1)
+                .encode()
+                .build()
+                .toUri();
+        try {
+            String response = restTemplate.getForObject(searchUri, String.class);
+            if (response == null) {
+                return null;
+            }
+            JsonNode results = objectMapper.readTree(response).path("results");
+            String artworkUrl = results.path(0).path("artworkUrl100").asText("");
+            if (artworkUrl.isEmpty()) {
+                return null;
+            }
+            return restTemplate.getForObject(URI.create(artworkUrl.replace("100x100", "600x600")), byte[].class);
+        } catch (RestClientException e) {
+            throw new IOException("iTunes lookup failed: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.streamletz.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Live progress of a background job, shared between the job and whoever reports on it.
+// Jobs poll isCancelled() between items and stop at the next safe point.
+public class JobProgress {
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder discovered = new LongAdder();
+    private volatile long total = -1;
+    private volatile long checkpoint;
+    private volatile boolean cancelled;
+    private volatile String lastError;
+
+    public static JobProgress untracked() {
+        return new JobProgress();
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    // For jobs that find their work as they go: the count so far stands in as the total
+    public void discover() {
+        discovered.increment();
+    }
+
+    public void advance() {
+        processed.increment();
+    }
+
+    public void fail(String error) {
+        processed.increment();
+        failed.increment();
+        lastError = error;
+    }
+
+    public void checkpoint(long checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    // The running discovered count until the total is set, -1 while nothing is known
+    public long getTotal() {
+        if (total >= 0) {
+            return total;
+        }
+        long found = discovered.sum();
+        return found > 0 ? found : -1;
+    }
+
+    public boolean isTotalFinal() {
+        return total >= 0;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public double itemsPerSecond() {
+        double seconds = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000) / 1000.0;
+        return getProcessed() / seconds;
+    }
+
+    // Null until the total is final or while nothing has been processed
+    public Long etaSeconds() {
+        long done = getProcessed();
+        double rate = itemsPerSecond();
+        if (total < 0 || done == 0 || rate <= 0) {
+            return null;
+        }
+        return (long) Math.ceil(Math.max(0, total - done) / rate);
+    }
+}
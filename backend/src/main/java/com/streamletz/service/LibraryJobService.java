@@ -0,0 +1,211 @@
+package com.streamletz.service;
+
+import com.streamletz.model.LibraryJob;
+import com.streamletz.repository.LibraryJobRepository;
+import com.streamletz.util.dto.JobStatusResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Runs library scans and cover generation in the background so the node serves the
+// existing catalog while indexing continues. Progress is checkpointed to library_jobs;
+// a cover job that was cancelled or cut short by a restart resumes after its checkpoint,
+// and a scan resumes naturally because files already indexed match the manifest.
+@Service
+@Slf4j
+public class LibraryJobService {
+
+    public enum JobType {
+        SCAN, COVERS
+    }
+
+    private record RunningJob(JobProgress progress, LibraryJob job) {
+    }
+
+    private final MusicScannerService musicScannerService;
+    private final CoverStartupService coverStartupService;
+    private final LibraryJobRepository libraryJobRepository;
+    private final boolean autoScan;
+    private final Map<JobType, RunningJob> active = new ConcurrentHashMap<>();
+
+    public LibraryJobService(MusicScannerService musicScannerService, CoverStartupService coverStartupService,
+            LibraryJobRepository libraryJobRepository,
+            @Value("${music.auto-scan:true}") boolean autoScan) {
+        this.musicScannerService = musicScannerService;
+        this.coverStartupService = coverStartupService;
+        this.libraryJobRepository = libraryJobRepository;
+        this.autoScan = autoScan;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnBoot() {
+        if (!autoScan) {
+            return;
+        }
+        log.info("Starting library scan and cover verification in the background");
+        // Covers are generated for what the scan indexed, so the two run back to back
+        Thread.ofVirtual().name("library-startup").start(() -> {
+            RunningJob scan = register(JobType.SCAN);
+            if (scan != null) {
+                run(JobType.SCAN, scan, false);
+            }
+            RunningJob covers = register(JobType.COVERS);
+            if (covers != null) {
+                run(JobType.COVERS, covers, false);
+            }
+        });
+    }
+
+    public JobStatusResponse start(JobType type, boolean fromScratch) {
+        if (!startIfIdle(type, fromScratch)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The " + type + " job is already running");
+        }
+        return getStatus(type);
+    }
+
+    // False when the job is already running; otherwise it runs in the background
+    public boolean startIfIdle(JobType type, boolean fromScratch) {
+        RunningJob running = register(type);
+        if (running == null) {
+            return false;
+        }
+        Thread.ofVirtual().name("library-job-" + type.name().toLowerCase()).start(() -> run(type, running, fromScratch));
+        return true;
+    }
+
+    public JobStatusResponse cancel(JobType type) {
+        RunningJob running = active.get(type);
+        if (running == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The " + type + " job is not running");
+        }
+        running.progress().cancel();
+        log.info("Cancelling {} job", type);
+        return getStatus(type);
+    }
+
+    public List<JobStatusResponse> getStatuses() {
+        return Arrays.stream(JobType.values()).map(this::getStatus).toList();
+    }
+
+    public JobStatusResponse getStatus(JobType type) {
+        RunningJob running = active.get(type);
+        if (running != null) {
+            JobProgress progress = running.progress();
+            return new JobStatusResponse(type.name(), progress.isCancelled() ? "CANCELLING" : "RUNNING",
+                    progress.isTotalFinal() ? "PROCESSING" : "DISCOVERING", progress.getProcessed(), progress.getFailed(),
+                    progress.getTotal() >= 0 ? progress.getTotal() : null,
+                    progress.itemsPerSecond(), progress.etaSeconds(), progress.getCheckpoint(),
+                    progress.getLastError(), running.job().getStartedAt(), null);
+        }
+        return libraryJobRepository.findById(type.name())
+                .map(job -> new JobStatusResponse(type.name(), job.getStatus().name(), null, job.getProcessed(),
+                        job.getFailed(), job.getTotal(), null, null, job.getCheckpoint(), job.getLastError(),
+                        job.getStartedAt(), job.getFinishedAt()))
+                .orElseGet(() -> new JobStatusResponse(type.name(), "IDLE", null, 0L, 0L, null, null, null, null, null,
+                        null, null));
+    }
+
+    @Scheduled(fixedDelayString = "${music.jobs.checkpoint-interval:PT5S}")
+    public void persistCheckpoints() {
+        active.forEach((type, running) -> {
+            synchronized (running.job()) {
+                if (active.get(type) == running) {
+                    save(running);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        active.values().forEach(running -> running.progress().cancel());
+        persistCheckpoints();
+    }
+
+    private RunningJob register(JobType type) {
+        if (active.containsKey(type)) {
+            return null;
+        }
+        LibraryJob job = libraryJobRepository.findById(type.name()).orElseGet(() -> {
+            LibraryJob created = new LibraryJob();
+            created.setName(type.name());
+            return created;
+        });
+        RunningJob running = new RunningJob(new JobProgress(), job);
+        return active.putIfAbsent(type, running) == null ? running : null;
+    }
+
+    private void run(JobType type, RunningJob running, boolean fromScratch) {
+        LibraryJob job = running.job();
+        JobProgress progress = running.progress();
+        long resumeAfter = !fromScratch && job.getStatus() != null && job.getStatus() != LibraryJob.Status.COMPLETED
+                && job.getCheckpoint() != null ? job.getCheckpoint() : 0;
+        progress.checkpoint(resumeAfter);
+        synchronized (job) {
+            job.setStatus(LibraryJob.Status.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+            job.setFinishedAt(null);
+            job.setLastError(null);
+            save(running);
+        }
+        if (resumeAfter > 0) {
+            log.info("Resuming {} job after checkpoint {}", type, resumeAfter);
+        }
+
+        LibraryJob.Status outcome;
+        String error = null;
+        try {
+            switch (type) {
+                case SCAN -> musicScannerService.scanMusicLibrary(progress);
+                case COVERS -> coverStartupService.checkAndGenerateMissingCovers(progress, resumeAfter);
+            }
+            outcome = progress.isCancelled() ? LibraryJob.Status.CANCELLED : LibraryJob.Status.COMPLETED;
+        } catch (RuntimeException e) {
+            log.error("{} job failed: {}", type, e.getMessage(), e);
+            outcome = LibraryJob.Status.FAILED;
+            error = e.getMessage();
+        }
+
+        synchronized (job) {
+            active.remove(type);
+            job.setStatus(outcome);
+            if (error != null) {
+                job.setLastError(error);
+            }
+            job.setFinishedAt(LocalDateTime.now());
+            save(running);
+        }
+        log.info("{} job {}: {} processed, {} failed", type, outcome.name().toLowerCase(), progress.getProcessed(),
+                progress.getFailed());
+    }
+
+    private void save(RunningJob running) {
+        LibraryJob job = running.job();
+        JobProgress progress = running.progress();
+        job.setProcessed(progress.getProcessed());
+        job.setFailed(progress.getFailed());
+        job.setTotal(progress.getTotal() >= 0 ? progress.getTotal() : null);
+        job.setCheckpoint(progress.getCheckpoint());
+        if (progress.getLastError() != null) {
+            job.setLastError(progress.getLastError());
+        }
+        job.setUpdatedAt(LocalDateTime.now());
+        try {
+            libraryJobRepository.save(job);
+        } catch (RuntimeException e) {
+            log.warn("Could not checkpoint {} job: {}", job.getName(), e.getMessage());
+        }
+    }
+}
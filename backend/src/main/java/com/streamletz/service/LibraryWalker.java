@@ -0,0 +1,260 @@
+package com.streamletz.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Lists the music library with several directory readers at once and hands files out
+// lazily through a bounded queue, so a huge tree never sits in memory as a whole
+@Component
+@Slf4j
+public class LibraryWalker {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final int maxDepth;
+    private final boolean followLinks;
+    private final int parallelism;
+    private final Set<String> extensions;
+
+    public LibraryWalker(@Value("${music.scan.max-depth:64}") int maxDepth,
+            @Value("${music.scan.follow-links:true}") boolean followLinks,
+            @Value("${music.scan.walk-parallelism:8}") int parallelism,
+            @Value("${music.scan.extensions:mp3,flac,m4a,wav,ogg}") List<String> extensions) {
+        this.maxDepth = maxDepth;
+        this.followLinks = followLinks;
+        this.parallelism = Math.max(1, parallelism);
+        this.extensions = extensions.stream()
+                .map(extension -> extension.trim().toLowerCase(Locale.ROOT))
+                .filter(extension -> !extension.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public record Entry(Path path, long size, long lastModified) {
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean isFollowLinks() {
+        return followLinks;
+    }
+
+    public boolean isMusicFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && extensions.contains(name.substring(dot + 1));
+    }
+
+    public Entry entry(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, linkOptions());
+        return new Entry(file, attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    // Walks the tree under a directory that is itself depth levels below the library root
+    public Walk walk(Path dir, int depth) {
+        Walk walk = new Walk();
+        walk.start(dir, depth);
+        return walk;
+    }
+
+    private LinkOption[] linkOptions() {
+        return followLinks ? new LinkOption[0] : new LinkOption[] { LinkOption.NOFOLLOW_LINKS };
+    }
+
+    // A followed symlink is a loop only when it points at one of its own ancestors, as in
+    // Files.walkFileTree. Aliases elsewhere in the tree (Favorites -> Artist/Album) are listed
+    // under every path, so a scan sees each path deterministically and never tombstones one.
+    private record Ancestors(Object key, Ancestors parent) {
+
+        boolean contains(Object candidate) {
+            for (Ancestors ancestor = this; ancestor != null; ancestor = ancestor.parent()) {
+                if (ancestor.key().equals(candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public final class Walk implements Iterable<Entry>, AutoCloseable {
+
+        private static final Entry END = new Entry(null, 0, 0);
+
+        private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final Semaphore readers = new Semaphore(parallelism);
+        private final AtomicInteger pending = new AtomicInteger();
+        private final ExecutorService pool = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("library-walk-", 0).factory());
+        private volatile boolean closed;
+        private volatile boolean complete = true;
+        private boolean iterated;
+
+        private void start(Path dir, int depth) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(dir, BasicFileAttributes.class, linkOptions());
+                if (attributes.isDirectory() && depth <= maxDepth) {
+                    submit(dir, depth, new Ancestors(fileKey(dir, attributes), null));
+                    return;
+                }
+            } catch (IOException e) {
+                log.warn("Cannot read library directory {}: {}", dir, e.getMessage());
+                complete = false;
+            }
+            emit(END);
+        }
+
+        // False when a directory could not be read or the walk was closed early, in which
+        // case files missing from the walk are not necessarily gone
+        public boolean isComplete() {
+            return complete && !closed;
+        }
+
+        @Override
+        public Iterator<Entry> iterator() {
+            if (iterated) {
+                throw new IllegalStateException("A library walk can only be iterated once");
+            }
+            iterated = true;
+            return new Iterator<>() {
+                private Entry next;
+                private boolean done;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null && !done) {
+                        try {
+                            next = queue.take();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            complete = false;
+                            next = END;
+                        }
+                        if (next == END) {
+                            next = null;
+                            done = true;
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Entry next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Entry entry = next;
+                    next = null;
+                    return entry;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            pool.shutdownNow();
+            queue.clear();
+        }
+
+        private void submit(Path dir, int depth, Ancestors ancestors) {
+            pending.incrementAndGet();
+            pool.execute(() -> {
+                try {
+                    list(dir, depth, ancestors);
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        emit(END);
+                    }
+                }
+            });
+        }
+
+        private void list(Path dir, int depth, Ancestors ancestors) {
+            try {
+                readers.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                for (Path child : children) {
+                    if (closed) {
+                        return;
+                    }
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class, linkOptions());
+                    } catch (IOException e) {
+                        // Typically a dangling symlink
+                        log.debug("Skipping unreadable library entry {}: {}", child, e.getMessage());
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        if (depth < maxDepth) {
+                            Object key = fileKey(child, attributes);
+                            if (ancestors.contains(key)) {
+                                log.debug("Skipping symlink loop at {}", child);
+                            } else {
+                                submit(child, depth + 1, new Ancestors(key, ancestors));
+                            }
+                        }
+                    } else if (attributes.isRegularFile() && isMusicFile(child)) {
+                        emit(new Entry(child, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                log.warn("Cannot list library directory {}: {}", dir, e.getMessage());
+                complete = false;
+            } finally {
+                readers.release();
+            }
+        }
+
+        // Identity of a directory (device and inode on Unix) for loop detection
+        private Object fileKey(Path dir, BasicFileAttributes attributes) {
+            Object key = attributes.fileKey();
+            if (key != null) {
+                return key;
+            }
+            try {
+                return dir.toRealPath();
+            } catch (IOException e) {
+                return dir.toAbsolutePath().normalize();
+            }
+        }
+
+        private void emit(Entry entry) {
+            try {
+                while (!closed && !queue.offer(entry, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    // Consumer is behind; keep waiting unless the walk gets closed
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
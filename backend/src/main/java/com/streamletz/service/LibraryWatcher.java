@@ -0,0 +1,272 @@
+package com.streamletz.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class LibraryWatcher {
+
+    private final MusicScannerService musicScannerService;
+    private final LibraryJobService libraryJobService;
+    private final LibraryWalker libraryWalker;
+    private final Path musicDir;
+    private final boolean enabled;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private Thread watchThread;
+    private volatile boolean running;
+    private volatile boolean rescanRequested;
+
+    public LibraryWatcher(MusicScannerService musicScannerService, LibraryJobService libraryJobService,
+            LibraryWalker libraryWalker,
+            @Value("${music.storage.path}") String musicStoragePath,
+            @Value("${music.watch.enabled:true}") boolean enabled,
+            @Value("${music.watch.debounce:PT2S}") Duration debounce,
+            @Value("${music.watch.max-delay:PT30S}") Duration maxDelay) {
+        this.musicScannerService = musicScannerService;
+        this.libraryJobService = libraryJobService;
+        this.libraryWalker = libraryWalker;
+        this.musicDir = Paths.get(musicStoragePath);
+        this.enabled = enabled;
+        this.debounceMillis = debounce.toMillis();
+        this.maxDelayMillis = Math.max(debounce.toMillis(), maxDelay.toMillis());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            registerTree(musicDir);
+            running = true;
+            watchThread = Thread.ofPlatform().daemon().name("library-watcher").start(this::watchLoop);
+            log.info("Watching {} ({} directories) for library changes", musicDir.toAbsolutePath(), watchedDirs.size());
+        } catch (IOException e) {
+            log.warn("Could not watch {}, falling back to periodic scans: {}", musicDir.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Error closing library watch service: {}", e.getMessage());
+            }
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+    }
+
+    // Covers watcher start-up failures, dropped watches and rescans that found a scan already
+    // running; with a live watcher and nothing requested this never touches the disk
+    @Scheduled(fixedDelayString = "${music.watch.fallback-interval:PT15M}",
+            initialDelayString = "${music.watch.fallback-interval:PT15M}")
+    public void fallbackScan() {
+        if (!enabled || (running && !rescanRequested)) {
+            return;
+        }
+        log.info("Running fallback library scan");
+        requestRescan();
+    }
+
+    // Runs as a SCAN job so it is tracked, guarded against overlap and off the scheduler
+    // thread. A scan already in progress may have missed the change, so the request stays
+    // open for the next fallback run.
+    private void requestRescan() {
+        if (libraryJobService.startIfIdle(LibraryJobService.JobType.SCAN, false)) {
+            rescanRequested = false;
+        }
+    }
+
+    private void watchLoop() {
+        Set<Path> pending = new LinkedHashSet<>();
+        long firstEventAt = 0;
+        long lastEventAt = 0;
+        try {
+            while (running) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long now = System.currentTimeMillis();
+                    long wait = Math.min(lastEventAt + debounceMillis, firstEventAt + maxDelayMillis) - now;
+                    key = wait > 0 ? watchService.poll(wait, TimeUnit.MILLISECONDS) : null;
+                }
+
+                if (key != null) {
+                    long now = System.currentTimeMillis();
+                    if (pending.isEmpty()) {
+                        firstEventAt = now;
+                    }
+                    lastEventAt = now;
+                    collectEvents(key, pending);
+                }
+
+                long now = System.currentTimeMillis();
+                if (!pending.isEmpty() && (now - lastEventAt >= debounceMillis || now - firstEventAt >= maxDelayMillis)) {
+                    List<Path> changes = new ArrayList<>(pending);
+                    pending.clear();
+                    flush(changes);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        } catch (RuntimeException e) {
+            log.error("Library watcher stopped: {}", e.getMessage(), e);
+        } finally {
+            running = false;
+        }
+    }
+
+    private void collectEvents(WatchKey key, Set<Path> pending) {
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Changes were lost, so rescan with the next flush rather than the next fallback run
+                log.warn("Library watch events overflowed, scheduling a full rescan");
+                rescanRequested = true;
+                pending.add(musicDir);
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                registerTree(path);
+            }
+            pending.add(path);
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+    }
+
+    private void flush(List<Path> changes) {
+        try {
+            // A full rescan covers the changed paths as well
+            if (rescanRequested) {
+                requestRescan();
+            } else {
+                musicScannerService.indexChanges(changes);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to index library changes: {}", e.getMessage(), e);
+        }
+    }
+
+    // Watches the same directories the scan walks, following links when the walker does.
+    // A directory that cannot be read or has vanished is skipped and left to a full rescan
+    // instead of failing start-up or stopping the watch loop.
+    private void registerTree(Path root) {
+        int depth = musicDir.relativize(root).getNameCount();
+        if (root.equals(musicDir)) {
+            depth = 0;
+        }
+        if (depth > libraryWalker.getMaxDepth()) {
+            return;
+        }
+        Set<FileVisitOption> options = libraryWalker.isFollowLinks()
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                : EnumSet.noneOf(FileVisitOption.class);
+        try {
+            Files.walkFileTree(root, options, libraryWalker.getMaxDepth() - depth, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    return register(dir) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+                }
+
+                // Directories at the depth limit are reported as files
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isDirectory()) {
+                        register(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    if (e instanceof FileSystemLoopException) {
+                        log.debug("Not watching symlink loop at {}", file);
+                    } else {
+                        log.warn("Could not watch {}: {}", file, e.getMessage());
+                        rescanRequested = true;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    if (e != null) {
+                        log.warn("Could not list {} for watching: {}", dir, e.getMessage());
+                        rescanRequested = true;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not watch {}: {}", root, e.getMessage());
+            rescanRequested = true;
+        }
+    }
+
+    private boolean register(Path dir) {
+        try {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not watch {}: {}", dir, e.getMessage());
+            rescanRequested = true;
+            return false;
+        }
+    }
+}
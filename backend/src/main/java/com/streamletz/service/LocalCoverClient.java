@@ -0,0 +1,33 @@
+package com.streamletz.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+// Offline stand-in for a cover service: serves lower-cased <artist> - <album>.jpg files, or
+// <artist> - <title>.jpg for tracks without an album, from music.covers.remote.local-path.
+// Anything missing is a miss.
+@Component
+@ConditionalOnProperty(name = "music.covers.remote.provider", havingValue = "local")
+public class LocalCoverClient implements RemoteCoverClient {
+
+    private final Path coverArtDir;
+
+    public LocalCoverClient(@Value("${music.covers.remote.local-path:./data/cover-art}") String coverArtPath) {
+        this.coverArtDir = Paths.get(coverArtPath);
+    }
+
+    @Override
+    public byte[] find(CoverQuery query) throws IOException {
+        String name = query.artist() + " - " + (query.album() != null ? query.album() : query.title());
+        String fileName = name.replaceAll("[\\\\/:*?\"<>|]", "_").replaceAll("\\s+", " ").trim().toLowerCase(Locale.ROOT);
+        Path cover = coverArtDir.resolve(fileName + ".jpg");
+        return Files.isRegularFile(cover) ? Files.readAllBytes(cover) : null;
+    }
+}
@@ -0,0 +1,152 @@
+package com.streamletz.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Mp3FrameScanner {
+
+    private static final int[][] BITRATES_KBPS = {
+            { 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448 }, // MPEG-1 Layer I
+            { 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384 }, // MPEG-1 Layer II
+            { 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320 }, // MPEG-1 Layer III
+            { 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256 }, // MPEG-2/2.5 Layer I
+            { 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 } // MPEG-2/2.5 Layer II & III
+    };
+
+    private static final int[][] SAMPLE_RATES = {
+            { 11025, 12000, 8000 }, // MPEG-2.5
+            {}, // reserved
+            { 22050, 24000, 16000 }, // MPEG-2
+            { 44100, 48000, 32000 } // MPEG-1
+    };
+
+    private Mp3FrameScanner() {
+    }
+
+    public record FrameHeader(int version, int layer, int bitrateKbps, int sampleRate, int samplesPerFrame,
+            int frameLength, int channelMode) {
+    }
+
+    public static FrameHeader parseHeader(ByteBuffer buffer, int offset) {
+        if (offset + 4 > buffer.limit()) {
+            return null;
+        }
+        int b1 = buffer.get(offset) & 0xFF;
+        int b2 = buffer.get(offset + 1) & 0xFF;
+        int b3 = buffer.get(offset + 2) & 0xFF;
+        int b4 = buffer.get(offset + 3) & 0xFF;
+        if (b1 != 0xFF || (b2 & 0xE0) != 0xE0) {
+            return null;
+        }
+
+        int version = (b2 >> 3) & 0x03;
+        int layerBits = (b2 >> 1) & 0x03;
+        int bitrateIndex = (b3 >> 4) & 0x0F;
+        int sampleRateIndex = (b3 >> 2) & 0x03;
+        int padding = (b3 >> 1) & 0x01;
+        if (version == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return null;
+        }
+
+        int layer = 4 - layerBits;
+        boolean mpeg1 = version == 3;
+        int table = mpeg1 ? layer - 1 : (layer == 1 ? 3 : 4);
+        int bitrate = BITRATES_KBPS[table][bitrateIndex - 1];
+        int sampleRate = SAMPLE_RATES[version][sampleRateIndex];
+
+        int samplesPerFrame;
+        int frameLength;
+        if (layer == 1) {
+            samplesPerFrame = 384;
+            frameLength = (12 * bitrate * 1000 / sampleRate + padding) * 4;
+        } else {
+            samplesPerFrame = layer == 3 && !mpeg1 ? 576 : 1152;
+            frameLength = samplesPerFrame / 8 * bitrate * 1000 / sampleRate + padding;
+        }
+        return new FrameHeader(version, layer, bitrate, sampleRate, samplesPerFrame, frameLength, (b4 >> 6) & 0x03);
+    }
+
+    public static int id3v2Size(ByteBuffer buffer) {
+        if (buffer.limit() < 10 || buffer.get(0) != 'I' || buffer.get(1) != 'D' || buffer.get(2) != '3') {
+            return 0;
+        }
+        int size = synchsafe(buffer, 6);
+        boolean footer = (buffer.get(5) & 0x10) != 0;
+        return 10 + size + (footer ? 10 : 0);
+    }
+
+    public static HlsSegmentIndex segment(Path path, long fileSize, long lastModified, double targetSeconds)
+            throws IOException {
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("MP3 file too large to segment: " + path);
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+
+        List<HlsSegmentIndex.Segment> segments = new ArrayList<>();
+        int position = id3v2Size(buffer);
+        int limit = buffer.limit();
+        long segmentStart = -1;
+        double segmentDuration = 0;
+        double elapsed = 0;
+
+        while (position + 4 <= limit) {
+            FrameHeader header = parseHeader(buffer, position);
+            if (header == null || position + header.frameLength() > limit) {
+                int next = resync(buffer, position + 1);
+                if (next < 0) {
+                    break;
+                }
+                position = next;
+                continue;
+            }
+
+            if (segmentStart < 0) {
+                segmentStart = position;
+            }
+            segmentDuration += (double) header.samplesPerFrame() / header.sampleRate();
+            position += header.frameLength();
+
+            if (segmentDuration >= targetSeconds) {
+                segments.add(new HlsSegmentIndex.Segment(segmentStart, position, elapsed, segmentDuration));
+                elapsed += segmentDuration;
+                segmentStart = -1;
+                segmentDuration = 0;
+            }
+        }
+        if (segmentStart >= 0) {
+            segments.add(new HlsSegmentIndex.Segment(segmentStart, position, elapsed, segmentDuration));
+        }
+        return new HlsSegmentIndex(fileSize, lastModified, List.copyOf(segments));
+    }
+
+    // A sync word only counts if the frame it describes is followed by another valid header
+    private static int resync(ByteBuffer buffer, int from) {
+        int limit = buffer.limit();
+        for (int offset = from; offset + 4 <= limit; offset++) {
+            FrameHeader header = parseHeader(buffer, offset);
+            if (header == null) {
+                continue;
+            }
+            int next = offset + header.frameLength();
+            if (next == limit || parseHeader(buffer, next) != null) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static int synchsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21)
+                | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7)
+                | (buffer.get(offset + 3) & 0x7F);
+    }
+}
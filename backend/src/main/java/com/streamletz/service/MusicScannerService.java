@@ -1,122 +1,515 @@
 package com.streamletz.service;
 
 import com.streamletz.model.Track;
+import com.streamletz.repository.TrackFileState;
 import com.streamletz.repository.TrackRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.tika.exception.TikaException;
-import org.jaudiotagger.audio.AudioFile;
-import org.jaudiotagger.audio.AudioFileIO;
-import org.jaudiotagger.tag.Tag;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Service;
-import org.xml.sax.SAXException;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class MusicScannerService implements CommandLineRunner {
+public class MusicScannerService {
+
+    private static final Track END_OF_SCAN = new Track();
+    private static final long PROGRESS_INTERVAL = 1000;
+    private static final int MANIFEST_CHUNK_SIZE = 1000;
 
     private final TrackRepository trackRepository;
+    private final TrackDescriptorCache trackDescriptorCache;
+    private final TrackBatchWriter trackBatchWriter;
+    private final LibraryWalker libraryWalker;
+    private final CoverPipeline coverPipeline;
 
     @Value("${music.storage.path}")
     private String musicStoragePath;
 
-    @Value("${music.auto-scan:true}")
-    private boolean autoScan;
+    @Value("${music.scan.parallelism:0}")
+    private int scanParallelism;
 
-    @Value("${music.covers.path:/covers}")
-    private String coversPath;
+    @Value("${music.scan.batch-size:500}")
+    private int scanBatchSize;
 
-    @Override
-    public void run(String... args) {
-        if (autoScan) {
-            log.info("Starting automatic music library scan...");
+    private final ReentrantLock scanLock = new ReentrantLock();
 
-            try {
-                Path coversDir = Paths.get(coversPath);
-                log.info("Checking covers directory: {}", coversDir.toAbsolutePath());
-                if (!Files.exists(coversDir)) {
-                    Files.createDirectories(coversDir);
-                    log.info("Created covers directory: {}", coversDir.toAbsolutePath());
-                } else {
-                    log.info("Covers directory already exists: {}", coversDir.toAbsolutePath());
-                }
-            } catch (IOException e) {
-                log.error("Failed to create covers directory: {}", e.getMessage());
-            }
-            java.util.List<Track> scannedTracks = scanMusicLibrary();
-            if (!scannedTracks.isEmpty()) {
-                trackRepository.saveAll(scannedTracks);
-                log.info("Saved {} new tracks to database.", scannedTracks.size());
-            } else {
-                log.info("No new tracks found to save.");
-            }
+    public record ScanStats(long discovered, long skipped, long extracted, long duplicates, long failed, long saved,
+            long updated, long moved, long removed, Duration elapsed) {
+
+        public double filesPerSecond() {
+            long millis = Math.max(1, elapsed.toMillis());
+            return (extracted + failed) * 1000.0 / millis;
         }
     }
 
-    public java.util.List<Track> scanMusicLibrary() {
-        java.util.List<Track> scannedTracks = new java.util.ArrayList<>();
+    public ScanStats scanMusicLibrary() {
+        return scanMusicLibrary(JobProgress.untracked());
+    }
+
+    public ScanStats scanMusicLibrary(JobProgress progress) {
+        long startNanos = System.nanoTime();
+        ScanCounters counters = new ScanCounters();
+        scanLock.lock();
         try {
             Path musicDir = Paths.get(musicStoragePath);
             if (!Files.exists(musicDir)) {
                 log.info("Creating music directory: {}", musicDir.toAbsolutePath());
                 Files.createDirectories(musicDir);
-                return scannedTracks;
+                return counters.toStats(startNanos);
             }
-            for (File file : scanMusicFilesRecursive(musicDir.toFile(), 0, 3)) {
-                try {
-                    String relativePath = musicDir.toFile().toPath().relativize(file.toPath()).toString().replace('\\', '/');
-                    if (trackRepository.findByFilePath(relativePath).isPresent()) {
-                        continue;
+            // One bulk query replaces a findByFilePath lookup per file
+            Map<String, TrackFileState> manifest = new HashMap<>();
+            for (TrackFileState state : trackRepository.findAllFileStates()) {
+                manifest.put(state.filePath(), state);
+            }
+            Map<String, Long> canonicalIds = new HashMap<>();
+            for (TrackFileState state : manifest.values()) {
+                if (state.contentHash() != null && state.duplicateOf() == null && !state.isTombstoned()) {
+                    canonicalIds.putIfAbsent(state.contentHash(), state.id());
+                }
+            }
+            Set<String> seen = new HashSet<>();
+            try (LibraryWalker.Walk walk = libraryWalker.walk(musicDir, 0)) {
+                runPipeline(musicDir, walk, manifest, new DuplicateIndex(canonicalIds), seen, progress, counters,
+                        startNanos);
+                // Unvisited files are not missing, so nothing is tombstoned after a partial walk
+                if (progress.isCancelled()) {
+                    log.info("Music library scan cancelled");
+                } else if (!walk.isComplete()) {
+                    log.warn("Parts of {} could not be listed, not tombstoning missing tracks", musicDir.toAbsolutePath());
+                } else {
+                    tombstoneMissing(musicDir, seen, manifest, counters);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Music library scan interrupted");
+        } catch (Exception e) {
+            log.error("Error scanning music library: {}", e.getMessage(), e);
+        } finally {
+            scanLock.unlock();
+        }
+        ScanStats stats = counters.toStats(startNanos);
+        log.info("Scan finished: {} files found, {} unchanged, {} extracted, {} duplicates, {} failed, {} saved, {} updated, {} removed in {} ms ({} files/s)",
+                stats.discovered(), stats.skipped(), stats.extracted(), stats.duplicates(), stats.failed(), stats.saved(),
+                stats.updated(), stats.removed(),
+                stats.elapsed().toMillis(), String.format(Locale.ROOT, "%.1f", stats.filesPerSecond()));
+        return stats;
+    }
+
+    // Indexes a batch of paths reported by the library watcher. Paths that still exist are
+    // parsed like in a full scan; vanished files and directories are matched against new files
+    // by size and mtime to detect moves, and whatever stays unmatched is tombstoned.
+    public ScanStats indexChanges(Collection<Path> paths) {
+        long startNanos = System.nanoTime();
+        ScanCounters counters = new ScanCounters();
+        Path musicDir = Paths.get(musicStoragePath);
+        scanLock.lock();
+        try {
+            Map<Path, LibraryWalker.Entry> present = new LinkedHashMap<>();
+            List<TrackFileState> vanished = new ArrayList<>();
+            for (Path path : paths) {
+                String relativePath = relativePath(musicDir, path);
+                if (Files.isDirectory(path)) {
+                    int depth = musicDir.relativize(path).getNameCount();
+                    try (LibraryWalker.Walk walk = libraryWalker.walk(path, depth)) {
+                        for (LibraryWalker.Entry entry : walk) {
+                            present.putIfAbsent(entry.path(), entry);
+                        }
                     }
-                    Track track = extractTrackMetadata(file, relativePath);
-                    if (track != null) {
-                        scannedTracks.add(track);
+                } else if (Files.isRegularFile(path)) {
+                    if (libraryWalker.isMusicFile(path)) {
+                        try {
+                            present.putIfAbsent(path, libraryWalker.entry(path));
+                        } catch (IOException e) {
+                            log.debug("Skipping unreadable file {}: {}", path, e.getMessage());
+                        }
                     }
-                } catch (Exception e) {
-                    log.error("Error processing file {}: {}", file.getName(), e.getMessage());
+                } else {
+                    vanished.addAll(trackRepository.findFileStatesUnder(relativePath));
+                }
+            }
+
+            List<String> presentPaths = present.keySet().stream().map(path -> relativePath(musicDir, path)).toList();
+            Map<String, TrackFileState> manifest = new HashMap<>();
+            for (int i = 0; i < presentPaths.size(); i += MANIFEST_CHUNK_SIZE) {
+                List<String> chunk = presentPaths.subList(i, Math.min(i + MANIFEST_CHUNK_SIZE, presentPaths.size()));
+                for (TrackFileState state : trackRepository.findFileStatesByFilePathIn(chunk)) {
+                    manifest.put(state.filePath(), state);
                 }
             }
+            List<LibraryWalker.Entry> unknown = new ArrayList<>();
+            for (LibraryWalker.Entry entry : present.values()) {
+                String relativePath = relativePath(musicDir, entry.path());
+                if (manifest.containsKey(relativePath) || !relocate(vanished, entry, relativePath, counters)) {
+                    unknown.add(entry);
+                }
+            }
+            runPipeline(musicDir, unknown, manifest, new DuplicateIndex(null), new HashSet<>(),
+                    JobProgress.untracked(), counters, startNanos);
+            tombstone(vanished.stream().map(TrackFileState::id).toList(), counters);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Incremental indexing interrupted");
         } catch (Exception e) {
-            log.error("Error scanning music library: {}", e.getMessage(), e);
+            log.error("Error indexing library changes: {}", e.getMessage(), e);
+        } finally {
+            scanLock.unlock();
+        }
+        ScanStats stats = counters.toStats(startNanos);
+        log.info("Indexed {} changed paths: {} saved, {} updated, {} moved, {} removed, {} failed in {} ms",
+                paths.size(), stats.saved(), stats.updated(), stats.moved(), stats.removed(), stats.failed(),
+                stats.elapsed().toMillis());
+        return stats;
+    }
+
+    private boolean relocate(List<TrackFileState> vanished, LibraryWalker.Entry entry, String relativePath,
+            ScanCounters counters) {
+        for (Iterator<TrackFileState> it = vanished.iterator(); it.hasNext(); ) {
+            TrackFileState state = it.next();
+            if (state.matches(entry.size(), entry.lastModified())) {
+                it.remove();
+                trackRepository.updateFilePath(state.id(), relativePath);
+                trackDescriptorCache.invalidate(state.id());
+                counters.moved.increment();
+                log.debug("Track {} moved from {} to {}", state.id(), state.filePath(), relativePath);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Set difference between indexed paths and the indexed paths the walk came across
+    private void tombstoneMissing(Path musicDir, Set<String> seen, Map<String, TrackFileState> manifest,
+            ScanCounters counters) {
+        List<Long> missing = manifest.values().stream()
+                .filter(state -> !state.isTombstoned() && !seen.contains(state.filePath()))
+                .map(TrackFileState::id)
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        if (counters.discovered.sum() == 0) {
+            // An empty library next to indexed tracks is far more likely an unmounted volume
+            log.warn("No music files found in {} but {} tracks are indexed, not tombstoning them",
+                    musicDir.toAbsolutePath(), missing.size());
+            return;
+        }
+        tombstone(missing, counters);
+    }
+
+    private void tombstone(List<Long> trackIds, ScanCounters counters) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < trackIds.size(); i += MANIFEST_CHUNK_SIZE) {
+            List<Long> chunk = trackIds.subList(i, Math.min(i + MANIFEST_CHUNK_SIZE, trackIds.size()));
+            counters.removed.add(trackRepository.tombstone(chunk, now));
+            trackRepository.promoteDuplicates(chunk);
+            trackDescriptorCache.invalidateAll(chunk);
+        }
+    }
+
+    private static String relativePath(Path musicDir, Path file) {
+        return musicDir.relativize(file).toString().replace('\\', '/');
+    }
+
+    // Walker -> bounded extraction workers -> bounded queue -> batching writer.
+    // The semaphore stops the walker when all workers are busy, and workers block
+    // on the queue when the writer falls behind, so memory stays bounded end to end.
+    private void runPipeline(Path musicDir, Iterable<LibraryWalker.Entry> files, Map<String, TrackFileState> manifest,
+            DuplicateIndex duplicates, Set<String> seen, JobProgress progress, ScanCounters counters, long startNanos)
+            throws InterruptedException {
+        int workers = scanParallelism > 0 ? scanParallelism : Runtime.getRuntime().availableProcessors();
+        int batchSize = Math.max(1, scanBatchSize);
+        BlockingQueue<Track> extracted = new ArrayBlockingQueue<>(batchSize * 2);
+        Semaphore permits = new Semaphore(workers);
+        log.info("Scanning {} with {} workers, batch size {}", musicDir.toAbsolutePath(), workers, batchSize);
+
+        Thread writer = Thread.ofVirtual().name("scan-writer").start(() -> writeBatches(extracted, batchSize, counters));
+        try (ExecutorService pool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("scan-", 0).factory())) {
+            for (LibraryWalker.Entry entry : files) {
+                if (progress.isCancelled()) {
+                    break;
+                }
+                counters.discovered.increment();
+                progress.discover();
+                File file = entry.path().toFile();
+                String relativePath = relativePath(musicDir, entry.path());
+                long lastModified = entry.lastModified();
+                TrackFileState known = manifest.get(relativePath);
+                if (known != null) {
+                    seen.add(relativePath);
+                }
+                if (known != null && known.matches(entry.size(), lastModified)) {
+                    counters.skipped.increment();
+                    progress.advance();
+                    continue;
+                }
+                permits.acquire();
+                pool.execute(() -> {
+                    try {
+                        String contentHash = hashContent(file);
+                        DuplicateIndex.Claim claim = known == null ? duplicates.claim(contentHash) : null;
+                        Track template = claim != null ? claim.template() : null;
+                        Track track;
+                        if (template != null) {
+                            // Same audio as an indexed track: reuse its tags and cover instead of parsing
+                            track = copyMetadata(template, entry, relativePath);
+                            counters.duplicates.increment();
+                        } else {
+                            try {
+                                track = extractTrackMetadata(file, relativePath, known == null);
+                                if (claim != null) {
+                                    claim.resolve(track);
+                                } else {
+                                    duplicates.register(contentHash, track);
+                                }
+                            } finally {
+                                // Copies waiting on this claim extract on their own if this one failed
+                                if (claim != null) {
+                                    claim.release();
+                                }
+                            }
+                            counters.extracted.increment();
+                        }
+                        track.setContentHash(contentHash);
+                        track.setFileLastModified(lastModified);
+                        if (known != null) {
+                            track.setId(known.id());
+                        }
+                        extracted.put(track);
+                        progress.advance();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        counters.failed.increment();
+                        progress.fail(file.getName() + ": " + e.getMessage());
+                        log.error("Error processing file {}: {}", file.getName(), e.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                    logProgress(counters, startNanos);
+                });
+            }
+            progress.setTotal(counters.discovered.sum());
+        } finally {
+            extracted.put(END_OF_SCAN);
+            writer.join();
+        }
+    }
+
+    private void writeBatches(BlockingQueue<Track> extracted, int batchSize, ScanCounters counters) {
+        List<Track> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Track track = extracted.take();
+                if (track == END_OF_SCAN) {
+                    break;
+                }
+                batch.add(track);
+                extracted.drainTo(batch, batchSize - batch.size());
+                if (batch.remove(END_OF_SCAN)) {
+                    saveBatch(batch, counters);
+                    return;
+                }
+                if (batch.size() >= batchSize) {
+                    saveBatch(batch, counters);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return scannedTracks;
+        saveBatch(batch, counters);
     }
 
-    private java.util.List<File> scanMusicFilesRecursive(File dir, int currentDepth, int maxDepth) {
-        java.util.List<File> musicFiles = new java.util.ArrayList<>();
-        if (currentDepth > maxDepth || !dir.isDirectory())
-            return musicFiles;
-        File[] files = dir.listFiles();
-        if (files == null)
-            return musicFiles;
-        for (File file : files) {
-            if (file.isDirectory()) {
-                if (currentDepth + 1 <= maxDepth) {
-                    musicFiles.addAll(scanMusicFilesRecursive(file, currentDepth + 1, maxDepth));
+    private void saveBatch(List<Track> batch, ScanCounters counters) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            TrackBatchWriter.WriteResult result = trackBatchWriter.write(batch);
+            trackDescriptorCache.invalidateAll(result.ids());
+            counters.saved.add(result.inserted());
+            counters.updated.add(result.updated());
+        } catch (Exception e) {
+            // Retry one by one so a single bad row does not drop the whole batch
+            log.warn("Batch save of {} tracks failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (Track track : batch) {
+                try {
+                    TrackBatchWriter.WriteResult result = trackBatchWriter.write(List.of(track));
+                    trackDescriptorCache.invalidateAll(result.ids());
+                    counters.saved.add(result.inserted());
+                    counters.updated.add(result.updated());
+                } catch (Exception inner) {
+                    counters.failed.increment();
+                    log.error("Error saving track {}: {}", track.getFilePath(), inner.getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private void logProgress(ScanCounters counters, long startNanos) {
+        long processed = counters.processed.incrementAndGet();
+        if (processed % PROGRESS_INTERVAL == 0) {
+            ScanStats stats = counters.toStats(startNanos);
+            log.info("Scan progress: {} files processed, {} saved ({} files/s)", processed, stats.saved(),
+                    String.format(Locale.ROOT, "%.1f", stats.filesPerSecond()));
+        }
+    }
+
+    private String hashContent(File file) {
+        try {
+            return AudioContentHasher.hash(file.toPath());
+        } catch (IOException e) {
+            log.warn("Could not hash {}: {}", file.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Track copyMetadata(Track template, LibraryWalker.Entry entry, String relativePath) {
+        String fileName = entry.path().getFileName().toString();
+        Track track = new Track();
+        track.setFilePath(relativePath);
+        track.setFileSize(entry.size());
+        track.setFileFormat(fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase());
+        track.setPlayCount(0);
+        track.setTitle(template.getTitle());
+        track.setArtist(template.getArtist());
+        track.setAlbum(template.getAlbum());
+        track.setDuration(template.getDuration());
+        track.setCoverArtUrl(template.getCoverArtUrl());
+        track.setCoverGenerated(template.getCoverGenerated());
+        return track;
+    }
+
+    // Content hash -> a track already carrying metadata for that audio, either indexed
+    // before this scan (looked up lazily) or extracted earlier in it. The first worker to see a
+    // hash claims it; concurrent copies of the same audio wait for that claim instead of
+    // extracting too, so they are linked as duplicates rather than inserted as canonical tracks.
+    private final class DuplicateIndex {
+        private final Map<String, Long> canonicalIds;
+        private final ConcurrentHashMap<String, CompletableFuture<Track>> templates = new ConcurrentHashMap<>();
+
+        DuplicateIndex(Map<String, Long> canonicalIds) {
+            this.canonicalIds = canonicalIds;
+        }
+
+        final class Claim {
+            private final CompletableFuture<Track> owned;
+            private final Track template;
+
+            private Claim(CompletableFuture<Track> owned, Track template) {
+                this.owned = owned;
+                this.template = template;
+            }
+
+            // Metadata to copy, or null when the caller has to extract it and then resolve the claim
+            Track template() {
+                return template;
+            }
+
+            void resolve(Track track) {
+                if (owned != null) {
+                    owned.complete(track);
+                }
+            }
+
+            // Called once extraction is over; a no-op after resolve
+            void release() {
+                if (owned != null) {
+                    owned.complete(null);
                 }
-            } else if (isMusicFile(file)) {
-                musicFiles.add(file);
             }
         }
-        return musicFiles;
+
+        Claim claim(String contentHash) throws InterruptedException {
+            if (contentHash == null) {
+                return new Claim(null, null);
+            }
+            CompletableFuture<Track> owned = new CompletableFuture<>();
+            CompletableFuture<Track> current = templates.putIfAbsent(contentHash, owned);
+            if (current != null) {
+                try {
+                    return new Claim(null, current.get());
+                } catch (ExecutionException e) {
+                    return new Claim(null, null);
+                }
+            }
+            try {
+                Optional<Track> stored = canonicalIds != null
+                        ? Optional.ofNullable(canonicalIds.get(contentHash)).flatMap(trackRepository::findById)
+                        : trackRepository.findFirstByContentHashAndDuplicateOfIsNullAndDeletedAtIsNull(contentHash);
+                if (stored.isPresent()) {
+                    owned.complete(stored.get());
+                    return new Claim(null, stored.get());
+                }
+            } catch (RuntimeException e) {
+                owned.complete(null);
+                throw e;
+            }
+            return new Claim(owned, null);
+        }
+
+        void register(String contentHash, Track track) {
+            if (contentHash != null) {
+                templates.putIfAbsent(contentHash, CompletableFuture.completedFuture(track));
+            }
+        }
     }
 
-    private boolean isMusicFile(File file) {
-        String name = file.getName().toLowerCase();
-        return name.endsWith(".mp3") || name.endsWith(".flac") || name.endsWith(".m4a") || name.endsWith(".wav")
-                || name.endsWith(".ogg");
+    private static final class ScanCounters {
+        final LongAdder discovered = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder extracted = new LongAdder();
+        final LongAdder duplicates = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder saved = new LongAdder();
+        final LongAdder updated = new LongAdder();
+        final LongAdder moved = new LongAdder();
+        final LongAdder removed = new LongAdder();
+        final AtomicLong processed = new AtomicLong();
+
+        ScanStats toStats(long startNanos) {
+            return new ScanStats(discovered.sum(), skipped.sum(), extracted.sum(), duplicates.sum(), failed.sum(),
+                    saved.sum(), updated.sum(), moved.sum(), removed.sum(), Duration.ofNanos(System.nanoTime() - startNanos));
+        }
     }
 
-    private Track extractTrackMetadata(File file, String relativePath) throws IOException, TikaException, SAXException {
+    // New tracks get their cover from the same tag read, so the cover job never reopens them
+    private Track extractTrackMetadata(File file, String relativePath, boolean withCover)
+            throws InterruptedException {
         Track track = new Track();
         track.setFilePath(relativePath);
         track.setFileSize(file.length());
@@ -126,40 +519,52 @@ public class MusicScannerService implements CommandLineRunner {
         String extension = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
         track.setFileFormat(extension);
 
+        byte[] artwork = null;
         try {
-            AudioFile audioFile = AudioFileIO.read(file);
-            Tag tag = audioFile.getTag();
-
-            if (tag != null) {
-                String title = tag.getFirst(org.jaudiotagger.tag.FieldKey.TITLE);
-                track.setTitle(title != null && !title.isEmpty() ? title : getFileNameWithoutExtension(fileName));
-
-                String artist = tag.getFirst(org.jaudiotagger.tag.FieldKey.ARTIST);
-                track.setArtist(artist != null && !artist.isEmpty() ? artist : "Unknown Artist");
-
-                String album = tag.getFirst(org.jaudiotagger.tag.FieldKey.ALBUM);
-                log.debug("Album value for {}: '{}' (length: {}, is null: {}, is empty: {})",
-                        fileName, album, album != null ? album.length() : -1, album == null,
-                        album != null && album.isEmpty());
-                track.setAlbum(album != null && !album.isEmpty() && !"0".equals(album) ? album : "Unknown Album");
-            } else {
-                track.setTitle(getFileNameWithoutExtension(fileName));
-                track.setArtist("Unknown Artist");
-                track.setAlbum("Unknown Album");
-            }
-
-            int durationInSeconds = audioFile.getAudioHeader().getTrackLength();
-            track.setDuration(durationInSeconds);
-            log.debug("Duration for {}: {} seconds", fileName, durationInSeconds);
+            AudioTagReader.AudioTags tags = AudioTagReader.read(file.toPath(), withCover);
+            artwork = tags.artwork();
+
+            String title = tags.title();
+            track.setTitle(title != null && !title.isEmpty() ? title : getFileNameWithoutExtension(fileName));
+
+            String artist = tags.artist();
+            track.setArtist(artist != null && !artist.isEmpty() ? artist : "Unknown Artist");
+
+            String album = tags.album();
+            log.debug("Album value for {}: '{}' (length: {}, is null: {}, is empty: {})",
+                    fileName, album, album != null ? album.length() : -1, album == null,
+                    album != null && album.isEmpty());
+            track.setAlbum(album != null && !album.isEmpty() && !"0".equals(album) ? album : "Unknown Album");
+
+            track.setDuration(tags.duration());
+            log.debug("Duration for {}: {} seconds", fileName, tags.duration());
         } catch (Exception e) {
             log.warn("Could not read metadata for {}: {}, using filename", fileName, e.getMessage());
             track.setTitle(getFileNameWithoutExtension(fileName));
             track.setArtist("Unknown Artist");
         }
 
+        if (artwork != null) {
+            storeCover(track, artwork);
+        }
         return track;
     }
 
+    private void storeCover(Track track, byte[] artwork) throws InterruptedException {
+        CoverPipeline.CoverTask task = new CoverPipeline.CoverTask(null, track.getFilePath(),
+                () -> new CoverPipeline.Artwork(artwork, CoverPipeline.CoverSource.EMBEDDED),
+                track.getTitle(), track.getArtist(), false);
+        try {
+            CoverPipeline.StoredCover stored = coverPipeline.submit(task).join();
+            if (stored != null) {
+                track.setCoverArtUrl(stored.url());
+            }
+        } catch (CompletionException e) {
+            // The cover job retries tracks without a cover
+            log.warn("Could not store embedded artwork for {}: {}", track.getFilePath(), e.getMessage());
+        }
+    }
+
     private String getFileNameWithoutExtension(String fileName) {
         int lastDot = fileName.lastIndexOf('.');
         return lastDot > 0 ? fileName.substring(0, lastDot) : fileName;
@@ -0,0 +1,126 @@
+package com.streamletz.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@Slf4j
+public class PlayCountAggregator {
+
+    private static final String INCREMENT_SQL =
+            "UPDATE tracks SET play_count = COALESCE(play_count, 0) + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxPendingTracks;
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Timer flushTimer;
+    private final Counter flushedPlays;
+
+    public PlayCountAggregator(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+            @Value("${music.play-count.flush-interval:PT5S}") Duration flushInterval,
+            @Value("${music.play-count.max-pending:10000}") int maxPendingTracks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPendingTracks = maxPendingTracks;
+
+        Gauge.builder("streamletz.play-count.pending-tracks", pending, Map::size)
+                .description("Tracks with play counts waiting to be flushed")
+                .register(meterRegistry);
+        Gauge.builder("streamletz.play-count.flush-interval", flushInterval, Duration::toMillis)
+                .description("Configured delay between play count flushes")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("streamletz.play-count.flush")
+                .description("Time spent writing batched play counts")
+                .register(meterRegistry);
+        this.flushedPlays = Counter.builder("streamletz.play-count.flushed")
+                .description("Plays written to the tracks table")
+                .register(meterRegistry);
+    }
+
+    public void record(Long trackId) {
+        add(trackId, 1);
+        if (pending.size() > maxPendingTracks && flushLock.tryLock()) {
+            try {
+                flushPending();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${music.play-count.flush-interval:PT5S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Lock-free unless the track is new. A flush may drop the adder around an add; then either
+    // the re-check here or the flush's own final drain moves the plays to a live adder.
+    private void add(Long trackId, long plays) {
+        while (plays > 0) {
+            LongAdder adder = pending.get(trackId);
+            if (adder == null) {
+                adder = pending.computeIfAbsent(trackId, id -> new LongAdder());
+            }
+            adder.add(plays);
+            if (pending.get(trackId) == adder) {
+                return;
+            }
+            plays = adder.sumThenReset();
+        }
+    }
+
+    private void flushPending() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            LongAdder adder = entry.getValue();
+            // The adder stays in the map while it is drained, so increments racing with
+            // sumThenReset are kept for the next flush
+            long plays = adder.sumThenReset();
+            if (plays > 0) {
+                batch.add(new Object[] { plays, entry.getKey() });
+            } else if (pending.remove(entry.getKey(), adder)) {
+                // Idle tracks are dropped; plays added while that happened are carried over
+                add(entry.getKey(), adder.sumThenReset());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            flushTimer.record(() -> jdbcTemplate.batchUpdate(INCREMENT_SQL, batch));
+            batch.forEach(row -> flushedPlays.increment((Long) row[0]));
+            log.debug("Flushed play counts for {} tracks", batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush play counts for {} tracks, retrying later: {}", batch.size(), e.getMessage());
+            batch.forEach(row -> add((Long) row[1], (Long) row[0]));
+        }
+    }
+}
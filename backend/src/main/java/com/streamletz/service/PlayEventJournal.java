@@ -0,0 +1,154 @@
+package com.streamletz.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Component
+@Slf4j
+public class PlayEventJournal {
+
+    // Fixed-size record: timestamp millis, track ID, user ID (0 when anonymous).
+    // A zero timestamp marks the first unused slot of a segment.
+    static final int RECORD_SIZE = 24;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("events-(\\d{20})\\.log");
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private MappedByteBuffer active;
+    private long activeSequence;
+
+    public PlayEventJournal(
+            @Value("${music.play-events.path:./data/play-events}") String directory,
+            @Value("${music.play-events.segment-size:4MB}") DataSize segmentSize) {
+        this.directory = Paths.get(directory);
+        this.segmentSize = (int) (Math.min(segmentSize.toBytes(), Integer.MAX_VALUE) / RECORD_SIZE * RECORD_SIZE);
+    }
+
+    public record PlayEvent(long timestamp, long trackId, long userId) {
+    }
+
+    // Segments up to the compaction checkpoint are treated as compacted, so numbering never
+    // goes back below nextSequence, even when the directory was wiped or moved
+    public synchronized void open(long nextSequence) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> sequences = listSegments();
+        long lastSequence = sequences.isEmpty() ? 1 : sequences.get(sequences.size() - 1);
+        activeSequence = Math.max(lastSequence, nextSequence);
+        active = map(activeSequence);
+        while (active.remaining() >= RECORD_SIZE && active.getLong(active.position()) != 0) {
+            active.position(active.position() + RECORD_SIZE);
+        }
+        if (active.remaining() < RECORD_SIZE) {
+            rotate();
+        }
+        log.info("Play event journal opened at {} (segment {}, offset {})",
+                directory.toAbsolutePath(), activeSequence, active.position());
+    }
+
+    public synchronized void append(long trackId, long userId) {
+        if (active.remaining() < RECORD_SIZE) {
+            rotate();
+        }
+        int position = active.position();
+        active.putLong(position + 8, trackId);
+        active.putLong(position + 16, userId);
+        // The timestamp goes last so a reader never sees a half-written record as committed
+        active.putLong(position, System.currentTimeMillis());
+        active.position(position + RECORD_SIZE);
+    }
+
+    public synchronized void sealActive() {
+        if (active.position() > 0) {
+            rotate();
+        }
+    }
+
+    public synchronized List<Long> sealedSegments() throws IOException {
+        return listSegments().stream()
+                .filter(sequence -> sequence < activeSequence)
+                .toList();
+    }
+
+    public void read(long sequence, Consumer<PlayEvent> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segmentPath(sequence)));
+        while (buffer.remaining() >= RECORD_SIZE) {
+            long timestamp = buffer.getLong();
+            long trackId = buffer.getLong();
+            long userId = buffer.getLong();
+            if (timestamp == 0) {
+                break;
+            }
+            consumer.accept(new PlayEvent(timestamp, trackId, userId));
+        }
+    }
+
+    public void delete(long sequence) {
+        try {
+            Files.deleteIfExists(segmentPath(sequence));
+        } catch (IOException e) {
+            log.warn("Could not delete play event segment {}: {}", sequence, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    private void rotate() {
+        try {
+            active.force();
+            activeSequence++;
+            active = map(activeSequence);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not rotate play event journal: " + e.getMessage());
+        }
+    }
+
+    private MappedByteBuffer map(long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    sequences.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("events-%020d.log", sequence));
+    }
+}
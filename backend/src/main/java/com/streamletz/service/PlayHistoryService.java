@@ -0,0 +1,171 @@
+package com.streamletz.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.streamletz.model.PlayEventCheckpoint;
+import com.streamletz.model.PlayRollup;
+import com.streamletz.model.Track;
+import com.streamletz.model.User;
+import com.streamletz.repository.PlayEventCheckpointRepository;
+import com.streamletz.repository.PlayRollupRepository;
+import com.streamletz.repository.UserPlayHistoryRepository;
+import com.streamletz.repository.UserRepository;
+import com.streamletz.util.dto.PlayCountResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Slf4j
+public class PlayHistoryService {
+
+    private static final String JOURNAL_NAME = "play-events";
+
+    private static final String UPSERT_ROLLUP_SQL =
+            "INSERT INTO play_rollups (track_id, period, period_start, play_count) VALUES (?, ?, ?, ?) "
+                    + "ON CONFLICT (track_id, period, period_start) "
+                    + "DO UPDATE SET play_count = play_rollups.play_count + EXCLUDED.play_count";
+
+    private static final String UPSERT_HISTORY_SQL =
+            "INSERT INTO user_play_history (user_id, track_id, last_played_at, play_count) "
+                    + "SELECT ?, t.id, ?, ? FROM tracks t WHERE t.id = ? "
+                    + "ON CONFLICT (user_id, track_id) DO UPDATE SET "
+                    + "last_played_at = GREATEST(user_play_history.last_played_at, EXCLUDED.last_played_at), "
+                    + "play_count = user_play_history.play_count + EXCLUDED.play_count";
+
+    private final PlayEventJournal journal;
+    private final PlayRollupRepository playRollupRepository;
+    private final UserPlayHistoryRepository userPlayHistoryRepository;
+    private final PlayEventCheckpointRepository checkpointRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, Long> userIds = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    public PlayHistoryService(PlayEventJournal journal, PlayRollupRepository playRollupRepository,
+            UserPlayHistoryRepository userPlayHistoryRepository, PlayEventCheckpointRepository checkpointRepository,
+            UserRepository userRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.journal = journal;
+        this.playRollupRepository = playRollupRepository;
+        this.userPlayHistoryRepository = userPlayHistoryRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void openJournal() throws IOException {
+        journal.open(lastCompactedSegment() + 1);
+    }
+
+    public void recordPlay(Long trackId, String username) {
+        long userId = 0;
+        if (username != null) {
+            userId = userIds.get(username, name -> userRepository.findByUsername(name)
+                    .map(User::getId)
+                    .orElse(0L));
+        }
+        journal.append(trackId, userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Track> getRecentlyPlayed(String username, int limit) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return userPlayHistoryRepository.findRecentlyPlayedTracks(user, PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PlayCountResponse> getPlayCounts(Long trackId, PlayRollup.Period period, Instant from, Instant to) {
+        if (trackId == null) {
+            throw new IllegalArgumentException("Track ID cannot be null");
+        }
+        return playRollupRepository
+                .findByTrackIdAndPeriodAndPeriodStartBetweenOrderByPeriodStartAsc(trackId, period, from, to)
+                .stream()
+                .map(rollup -> new PlayCountResponse(rollup.getPeriodStart(), rollup.getPlayCount()))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${music.play-events.compaction-interval:PT1M}")
+    public void compact() {
+        journal.sealActive();
+        try {
+            long checkpoint = lastCompactedSegment();
+            for (long sequence : journal.sealedSegments()) {
+                if (sequence > checkpoint) {
+                    compactSegment(sequence);
+                }
+                journal.delete(sequence);
+            }
+        } catch (Exception e) {
+            log.error("Play event compaction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private long lastCompactedSegment() {
+        return checkpointRepository.findById(JOURNAL_NAME)
+                .map(PlayEventCheckpoint::getLastSegment)
+                .orElse(0L);
+    }
+
+    private void compactSegment(long sequence) throws IOException {
+        Map<RollupKey, Long> rollups = new HashMap<>();
+        Map<HistoryKey, long[]> history = new HashMap<>();
+
+        journal.read(sequence, event -> {
+            Instant playedAt = Instant.ofEpochMilli(event.timestamp());
+            rollups.merge(new RollupKey(event.trackId(), PlayRollup.Period.HOUR,
+                    playedAt.truncatedTo(ChronoUnit.HOURS)), 1L, Long::sum);
+            rollups.merge(new RollupKey(event.trackId(), PlayRollup.Period.DAY,
+                    playedAt.truncatedTo(ChronoUnit.DAYS)), 1L, Long::sum);
+            if (event.userId() != 0) {
+                long[] entry = history.computeIfAbsent(new HistoryKey(event.userId(), event.trackId()),
+                        key -> new long[2]);
+                entry[0] = Math.max(entry[0], event.timestamp());
+                entry[1]++;
+            }
+        });
+
+        List<Object[]> rollupRows = new ArrayList<>(rollups.size());
+        rollups.forEach((key, plays) -> rollupRows.add(new Object[] {
+                key.trackId(), key.period().name(), Timestamp.from(key.periodStart()), plays }));
+        List<Object[]> historyRows = new ArrayList<>(history.size());
+        history.forEach((key, entry) -> historyRows.add(new Object[] {
+                key.userId(), new Timestamp(entry[0]), entry[1], key.trackId() }));
+
+        // Rollups and the checkpoint commit together, so a segment is never counted twice
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPSERT_ROLLUP_SQL, rollupRows);
+            jdbcTemplate.batchUpdate(UPSERT_HISTORY_SQL, historyRows);
+            checkpointRepository.save(new PlayEventCheckpoint(JOURNAL_NAME, sequence));
+        });
+        log.debug("Compacted play event segment {} into {} rollups", sequence, rollupRows.size());
+    }
+
+    private record RollupKey(long trackId, PlayRollup.Period period, Instant periodStart) {
+    }
+
+    private record HistoryKey(long userId, long trackId) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.streamletz.service;
+
+import java.io.IOException;
+
+// Looks up cover art outside the library. Selected with music.covers.remote.provider; calls are
+// rate limited, retried and cached by RemoteCoverResolver, so implementations stay simple.
+public interface RemoteCoverClient {
+
+    // album is null when the track has no album tag, in which case title identifies the cover
+    record CoverQuery(String artist, String album, String title) {
+    }
+
+    // Image bytes, or null when the service definitely has no cover for the query. Transient
+    // failures (timeouts, rate limiting, server errors) are thrown so they get retried instead
+    // of being remembered as misses.
+    byte[] find(CoverQuery query) throws IOException;
+}
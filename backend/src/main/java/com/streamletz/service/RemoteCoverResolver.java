@@ -0,0 +1,186 @@
+package com.streamletz.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.streamletz.model.CoverLookup;
+import com.streamletz.repository.CoverLookupRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Resolves covers per album rather than per track: every track of an album maps to the same
+// lookup, concurrent lookups for one album share a single call, and results are remembered in
+// cover_lookups so a restart does not ask again. Found covers are kept as stored cover URLs,
+// misses expire after music.covers.remote.negative-ttl and are then tried again.
+@Component
+@Slf4j
+public class RemoteCoverResolver {
+
+    private static final String UNKNOWN_ALBUM = "Unknown Album";
+    private static final Duration MEMORY_TTL = Duration.ofMinutes(30);
+
+    private final RemoteCoverClient client;
+    private final CoverLookupRepository coverLookupRepository;
+    private final CoverStore coverStore;
+    private final Semaphore permits;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration positiveTtl;
+    private final Duration negativeTtl;
+    private final ExecutorService lookupPool;
+    private final AsyncCache<String, Optional<String>> recent;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder remoteCalls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public RemoteCoverResolver(RemoteCoverClient client, CoverLookupRepository coverLookupRepository,
+            CoverStore coverStore,
+            @Value("${music.covers.remote.max-concurrent:4}") int maxConcurrent,
+            @Value("${music.covers.remote.max-attempts:3}") int maxAttempts,
+            @Value("${music.covers.remote.backoff:PT1S}") Duration backoff,
+            @Value("${music.covers.remote.positive-ttl:P30D}") Duration positiveTtl,
+            @Value("${music.covers.remote.negative-ttl:P7D}") Duration negativeTtl) {
+        this.client = client;
+        this.coverLookupRepository = coverLookupRepository;
+        this.coverStore = coverStore;
+        this.permits = new Semaphore(Math.max(1, maxConcurrent));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = backoff;
+        this.positiveTtl = positiveTtl;
+        this.negativeTtl = negativeTtl;
+        this.lookupPool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cover-lookup-", 0).factory());
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(MEMORY_TTL)
+                .executor(lookupPool)
+                .buildAsync();
+    }
+
+    // The stored cover URL for the track's album, or empty when none could be found. Lookups
+    // that keep failing are not remembered, so the next run tries them again.
+    public Optional<String> resolve(String artist, String album, String title) {
+        RemoteCoverClient.CoverQuery query = query(artist, album, title);
+        lookups.increment();
+        return recent.get(lookupKey(query), (key, executor) -> CompletableFuture.supplyAsync(() -> lookup(key, query),
+                executor)).join();
+    }
+
+    // False only while a miss for the track's album is remembered; a lookup that failed
+    // outright left no row, so it is due as well
+    public boolean isRetryDue(String artist, String album, String title) {
+        return coverLookupRepository.findById(lookupKey(query(artist, album, title)))
+                .map(lookup -> lookup.getCoverUrl() != null || !isFresh(lookup, LocalDateTime.now()))
+                .orElse(true);
+    }
+
+    public String statsSummary() {
+        return String.format(Locale.ROOT, "%d lookups, %d remembered, %d remote calls, %d failed",
+                lookups.sum(), cacheHits.sum(), remoteCalls.sum(), failures.sum());
+    }
+
+    public void resetStats() {
+        lookups.reset();
+        cacheHits.reset();
+        remoteCalls.reset();
+        failures.reset();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lookupPool.shutdownNow();
+    }
+
+    private Optional<String> lookup(String key, RemoteCoverClient.CoverQuery query) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<CoverLookup> remembered = coverLookupRepository.findById(key);
+        if (remembered.isPresent() && isFresh(remembered.get(), now)) {
+            cacheHits.increment();
+            return Optional.ofNullable(remembered.get().getCoverUrl());
+        }
+
+        byte[] image;
+        try {
+            image = fetch(query);
+        } catch (IOException e) {
+            failures.increment();
+            log.debug("Cover lookup for {} failed: {}", key, e.getMessage());
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+
+        String coverUrl = null;
+        if (image != null) {
+            try {
+                coverUrl = CoverStore.url(coverStore.store(CoverImages.resize(image)));
+            } catch (IOException e) {
+                // An image the service returned but we cannot decode is as good as a miss
+                log.debug("Unusable remote cover for {}: {}", key, e.getMessage());
+            }
+        }
+        coverLookupRepository.save(new CoverLookup(key, coverUrl, now));
+        return Optional.ofNullable(coverUrl);
+    }
+
+    private byte[] fetch(RemoteCoverClient.CoverQuery query) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            permits.acquire();
+            try {
+                remoteCalls.increment();
+                return client.find(query);
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+            } finally {
+                permits.release();
+            }
+            // Exponential backoff with jitter, outside the permit so other albums keep going
+            long delay = backoff.toMillis() << (attempt - 1);
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+        }
+    }
+
+    // A remembered cover also has to still be in the store
+    private boolean isFresh(CoverLookup lookup, LocalDateTime now) {
+        if (lookup.getCoverUrl() == null) {
+            return lookup.getCheckedAt().plus(negativeTtl).isAfter(now);
+        }
+        Path cover = coverStore.resolveUrl(lookup.getCoverUrl());
+        return lookup.getCheckedAt().plus(positiveTtl).isAfter(now) && cover != null && Files.isRegularFile(cover);
+    }
+
+    private static RemoteCoverClient.CoverQuery query(String artist, String album, String title) {
+        boolean albumKnown = album != null && !album.isBlank() && !UNKNOWN_ALBUM.equals(album);
+        return new RemoteCoverClient.CoverQuery(artist, albumKnown ? album : null, title);
+    }
+
+    private static String lookupKey(RemoteCoverClient.CoverQuery query) {
+        String artist = normalize(query.artist());
+        return query.album() != null
+                ? "album:" + artist + "\u001f" + normalize(query.album())
+                : "track:" + artist + "\u001f" + normalize(query.title());
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,117 @@
+package com.streamletz.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class StreamBandwidthShaper {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final boolean enabled;
+    private final double bitrateMultiplier;
+    private final long burstSeconds;
+    private final long defaultBytesPerSecond;
+    private final long userBytesPerSecond;
+    private final TokenBucket globalBucket;
+    private final LoadingCache<String, TokenBucket> userBuckets;
+
+    public StreamBandwidthShaper(
+            @Value("${music.stream.shaping.enabled:false}") boolean enabled,
+            @Value("${music.stream.shaping.bitrate-multiplier:2.0}") double bitrateMultiplier,
+            @Value("${music.stream.shaping.burst-seconds:10}") long burstSeconds,
+            @Value("${music.stream.shaping.default-rate:40KB}") DataSize defaultRate,
+            @Value("${music.stream.shaping.user-rate:0}") DataSize userRate,
+            @Value("${music.stream.shaping.global-rate:0}") DataSize globalRate) {
+        this.enabled = enabled;
+        this.bitrateMultiplier = bitrateMultiplier;
+        this.burstSeconds = burstSeconds;
+        this.defaultBytesPerSecond = defaultRate.toBytes();
+        this.userBytesPerSecond = userRate.toBytes();
+
+        long globalBytesPerSecond = globalRate.toBytes();
+        this.globalBucket = globalBytesPerSecond > 0
+                ? new TokenBucket(globalBytesPerSecond, globalBytesPerSecond * burstSeconds)
+                : null;
+        this.userBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build(user -> new TokenBucket(userBytesPerSecond, userBytesPerSecond * burstSeconds));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String clientKey(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : "ip:" + request.getRemoteAddr();
+    }
+
+    public OutputStream shape(TrackDescriptor track, String clientKey, OutputStream out) {
+        if (!enabled) {
+            return out;
+        }
+        long trackRate = track.bytesPerSecond() > 0 ? track.bytesPerSecond() : defaultBytesPerSecond;
+        long connectionRate = Math.max(1, (long) (trackRate * bitrateMultiplier));
+        // The connection bucket starts full, so playback start gets burstSeconds of audio at line rate
+        TokenBucket connectionBucket = new TokenBucket(connectionRate, trackRate * burstSeconds);
+        TokenBucket userBucket = userBytesPerSecond > 0 ? userBuckets.get(clientKey) : null;
+        return new ShapedOutputStream(out, connectionBucket, userBucket, globalBucket);
+    }
+
+    private static final class ShapedOutputStream extends FilterOutputStream {
+
+        private final TokenBucket[] buckets;
+
+        ShapedOutputStream(OutputStream out, TokenBucket... buckets) {
+            super(out);
+            this.buckets = buckets;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            pace(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, CHUNK_SIZE);
+                pace(chunk);
+                out.write(b, off, chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        private void pace(int bytes) throws IOException {
+            long delay = 0;
+            for (TokenBucket bucket : buckets) {
+                if (bucket != null) {
+                    delay = Math.max(delay, bucket.reserve(bytes));
+                }
+            }
+            if (delay > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while pacing stream");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.streamletz.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class StreamMetrics {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter completed;
+    private final Counter failed;
+
+    public StreamMetrics(MeterRegistry meterRegistry) {
+        Gauge.builder("streamletz.streams.in-flight", inFlight, AtomicInteger::get)
+                .description("Stream bodies currently being written")
+                .register(meterRegistry);
+        this.completed = Counter.builder("streamletz.streams.completed")
+                .description("Stream bodies written to completion")
+                .register(meterRegistry);
+        this.failed = Counter.builder("streamletz.streams.failed")
+                .description("Stream bodies aborted by an I/O error or client disconnect")
+                .register(meterRegistry);
+    }
+
+    public StreamingResponseBody track(StreamingResponseBody body) {
+        return out -> {
+            inFlight.incrementAndGet();
+            try {
+                body.writeTo(out);
+                completed.increment();
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
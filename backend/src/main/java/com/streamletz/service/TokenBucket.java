@@ -0,0 +1,36 @@
+package com.streamletz.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class TokenBucket {
+
+    private final double nanosPerByte;
+    private final long burstNanos;
+
+    // Instant at which the bucket is drained; a full bucket sits burstNanos in the past.
+    // Advanced with CAS, so concurrent writers never block each other on a lock.
+    private final AtomicLong nextFree;
+
+    public TokenBucket(long bytesPerSecond, long burstBytes) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.nanosPerByte = (double) TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        this.burstNanos = (long) (Math.max(burstBytes, 0) * nanosPerByte);
+        this.nextFree = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    public long reserve(long bytes) {
+        long cost = (long) (bytes * nanosPerByte);
+        while (true) {
+            long now = System.nanoTime();
+            long current = nextFree.get();
+            long start = Math.max(current, now - burstNanos);
+            long next = start + cost;
+            if (nextFree.compareAndSet(current, next)) {
+                return Math.max(0, next - now);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.streamletz.service;
+
+import com.streamletz.model.Track;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Component
+public class TrackBatchWriter {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}")
+    private int flushSize;
+
+    public record WriteResult(List<Long> ids, int inserted, int updated) {
+    }
+
+    // Writes scanned tracks in one transaction, flushing and clearing the persistence context
+    // every JDBC batch so inserts go out as batched statements and memory stays flat.
+    // Tracks carrying an ID are changed files: they keep their row, play count, uploader and
+    // cover, and only file metadata is refreshed. New tracks whose audio is already in the
+    // library are linked to the first copy through duplicateOf.
+    @Transactional
+    public WriteResult write(List<Track> scanned) {
+        int chunkSize = Math.max(1, flushSize);
+        List<Long> ids = new ArrayList<>(scanned.size());
+        int inserted = 0;
+        int updated = 0;
+        Map<String, Long> canonicalIds = new HashMap<>();
+        for (int from = 0; from < scanned.size(); from += chunkSize) {
+            List<Track> chunk = scanned.subList(from, Math.min(from + chunkSize, scanned.size()));
+            Map<Long, Track> existing = loadExisting(chunk);
+            loadCanonical(chunk, canonicalIds);
+            for (Track track : chunk) {
+                Track current = track.getId() != null ? existing.get(track.getId()) : null;
+                if (current == null) {
+                    track.setId(null);
+                    Long canonicalId = track.getContentHash() != null ? canonicalIds.get(track.getContentHash()) : null;
+                    track.setDuplicateOf(canonicalId);
+                    entityManager.persist(track);
+                    if (track.getContentHash() != null && canonicalId == null) {
+                        canonicalIds.put(track.getContentHash(), track.getId());
+                    }
+                    ids.add(track.getId());
+                    inserted++;
+                } else {
+                    current.setTitle(track.getTitle());
+                    current.setArtist(track.getArtist());
+                    current.setAlbum(track.getAlbum());
+                    current.setDuration(track.getDuration());
+                    current.setFileFormat(track.getFileFormat());
+                    current.setFileSize(track.getFileSize());
+                    current.setFileLastModified(track.getFileLastModified());
+                    current.setContentHash(track.getContentHash());
+                    if (current.getDeletedAt() != null) {
+                        // Its old canonical copy may be gone by now
+                        Long canonicalId = track.getContentHash() != null ? canonicalIds.get(track.getContentHash()) : null;
+                        current.setDuplicateOf(Objects.equals(canonicalId, current.getId()) ? null : canonicalId);
+                    }
+                    current.setDeletedAt(null);
+                    ids.add(current.getId());
+                    updated++;
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return new WriteResult(ids, inserted, updated);
+    }
+
+    private void loadCanonical(List<Track> chunk, Map<String, Long> canonicalIds) {
+        List<String> hashes = chunk.stream()
+                .map(Track::getContentHash)
+                .filter(hash -> hash != null && !canonicalIds.containsKey(hash))
+                .distinct()
+                .toList();
+        if (hashes.isEmpty()) {
+            return;
+        }
+        entityManager.createQuery("SELECT t.contentHash, t.id FROM Track t WHERE t.contentHash IN :hashes "
+                        + "AND t.duplicateOf IS NULL AND t.deletedAt IS NULL ORDER BY t.id", Object[].class)
+                .setParameter("hashes", hashes)
+                .getResultList()
+                .forEach(row -> canonicalIds.putIfAbsent((String) row[0], (Long) row[1]));
+    }
+
+    private Map<Long, Track> loadExisting(List<Track> chunk) {
+        List<Long> changedIds = chunk.stream()
+                .map(Track::getId)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<Long, Track> existing = new HashMap<>();
+        if (!changedIds.isEmpty()) {
+            entityManager.createQuery("SELECT t FROM Track t WHERE t.id IN :ids", Track.class)
+                    .setParameter("ids", changedIds)
+                    .getResultList()
+                    .forEach(track -> existing.put(track.getId(), track));
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,131 @@
+package com.streamletz.service;
+
+import com.streamletz.model.Playlist;
+import com.streamletz.model.Track;
+import com.streamletz.repository.LikedTrackRepository;
+import com.streamletz.repository.PlayRollupRepository;
+import com.streamletz.repository.PlaylistRepository;
+import com.streamletz.repository.TrackRepository;
+import com.streamletz.repository.UserPlayHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Purges tracks whose files disappeared. Tombstoned rows are kept for a grace period so
+// a volume that was briefly unmounted or a file that is being replaced comes back intact.
+@Service
+@Slf4j
+public class TrackCleanupService {
+
+    private final TrackRepository trackRepository;
+    private final PlaylistRepository playlistRepository;
+    private final LikedTrackRepository likedTrackRepository;
+    private final UserPlayHistoryRepository userPlayHistoryRepository;
+    private final PlayRollupRepository playRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CoverRenditionService coverRenditionService;
+    private final CoverStore coverStore;
+    private final Duration gracePeriod;
+    private final int batchSize;
+
+    public TrackCleanupService(TrackRepository trackRepository, PlaylistRepository playlistRepository,
+            LikedTrackRepository likedTrackRepository, UserPlayHistoryRepository userPlayHistoryRepository,
+            PlayRollupRepository playRollupRepository, PlatformTransactionManager transactionManager,
+            CoverRenditionService coverRenditionService, CoverStore coverStore,
+            @Value("${music.tombstone.grace-period:PT24H}") Duration gracePeriod,
+            @Value("${music.tombstone.batch-size:500}") int batchSize) {
+        this.trackRepository = trackRepository;
+        this.playlistRepository = playlistRepository;
+        this.likedTrackRepository = likedTrackRepository;
+        this.userPlayHistoryRepository = userPlayHistoryRepository;
+        this.playRollupRepository = playRollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.coverRenditionService = coverRenditionService;
+        this.coverStore = coverStore;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${music.tombstone.cleanup-interval:PT10M}",
+            initialDelayString = "${music.tombstone.cleanup-interval:PT10M}")
+    public void purgeTombstoned() {
+        LocalDateTime before = LocalDateTime.now().minus(gracePeriod);
+        int purged = 0;
+        try {
+            while (true) {
+                List<Track> tombstoned = trackRepository.findTombstonedBefore(before, PageRequest.of(0, batchSize));
+                if (tombstoned.isEmpty()) {
+                    break;
+                }
+                purgeBatch(tombstoned);
+                purged += tombstoned.size();
+                if (tombstoned.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to purge tombstoned tracks: {}", e.getMessage(), e);
+        }
+        if (purged > 0) {
+            log.info("Purged {} tombstoned tracks", purged);
+        }
+    }
+
+    private void purgeBatch(List<Track> tracks) {
+        Set<Long> trackIds = new HashSet<>();
+        Set<String> coverUrls = new HashSet<>();
+        for (Track track : tracks) {
+            trackIds.add(track.getId());
+            if (track.getCoverArtUrl() != null && track.getCoverArtUrl().startsWith(CoverStore.URL_PREFIX)) {
+                coverUrls.add(track.getCoverArtUrl());
+            }
+        }
+
+        Set<String> orphanedCovers = transactionTemplate.execute(status -> {
+            // Removing through the entity keeps each playlist's position column contiguous
+            for (Playlist playlist : playlistRepository.findContainingTracks(trackIds)) {
+                playlist.getTracks().removeIf(track -> trackIds.contains(track.getId()));
+            }
+            playlistRepository.flush();
+            likedTrackRepository.deleteByTrackIds(trackIds);
+            userPlayHistoryRepository.deleteByTrackIds(trackIds);
+            playRollupRepository.deleteByTrackIds(trackIds);
+            trackRepository.deleteAllByIdInBatch(trackIds);
+
+            Set<String> unused = new HashSet<>();
+            for (String coverUrl : coverUrls) {
+                if (!trackRepository.isCoverUsedByOthers(coverUrl, trackIds)) {
+                    unused.add(coverUrl);
+                }
+            }
+            return unused;
+        });
+
+        // Files go only after the rows are committed
+        for (String coverUrl : orphanedCovers) {
+            Path cover = coverStore.resolveUrl(coverUrl);
+            if (cover == null) {
+                continue;
+            }
+            coverRenditionService.evict(cover.getFileName().toString());
+            try {
+                Files.deleteIfExists(cover);
+            } catch (IOException e) {
+                log.warn("Could not delete cover {}: {}", cover, e.getMessage());
+            }
+        }
+    }
+}
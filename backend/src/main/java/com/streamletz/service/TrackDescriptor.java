@@ -0,0 +1,17 @@
+package com.streamletz.service;
+
+import com.streamletz.util.FileValidators;
+
+import java.nio.file.Path;
+
+public record TrackDescriptor(Long trackId, Path path, long size, long lastModified, String contentType,
+        Integer duration) {
+
+    public String etag() {
+        return FileValidators.etag(path, size, lastModified);
+    }
+
+    public long bytesPerSecond() {
+        return duration != null && duration > 0 ? size / duration : 0;
+    }
+}
@@ -0,0 +1,42 @@
+package com.streamletz.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+@Component
+public class TrackDescriptorCache {
+
+    private final Cache<Long, TrackDescriptor> cache;
+
+    public TrackDescriptorCache(
+            @Value("${music.stream.descriptor-cache.max-size:10000}") long maxSize,
+            @Value("${music.stream.descriptor-cache.ttl:PT10M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public TrackDescriptor get(Long trackId, Function<Long, TrackDescriptor> loader) {
+        return cache.get(trackId, loader);
+    }
+
+    public void invalidate(Long trackId) {
+        if (trackId != null) {
+            cache.invalidate(trackId);
+        }
+    }
+
+    public void invalidateAll(Iterable<Long> trackIds) {
+        cache.invalidateAll(trackIds);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,155 @@
+package com.streamletz.service;
+
+import com.streamletz.model.Track;
+import com.streamletz.repository.TrackRepository;
+import com.streamletz.util.dto.PrefixCacheStatsResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@Slf4j
+public class TrackPrefixCache {
+
+    private final TrackRepository trackRepository;
+    private final TrackService trackService;
+    private final boolean enabled;
+    private final long prefixBytes;
+    private final long maxBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Replaced wholesale on refresh so readers never need a lock
+    private volatile Map<Long, Segment> segments = Map.of();
+
+    public TrackPrefixCache(TrackRepository trackRepository, TrackService trackService,
+            @Value("${music.stream.prefix-cache.enabled:false}") boolean enabled,
+            @Value("${music.stream.prefix-cache.prefix-size:2MB}") DataSize prefixSize,
+            @Value("${music.stream.prefix-cache.max-size:256MB}") DataSize maxSize) {
+        this.trackRepository = trackRepository;
+        this.trackService = trackService;
+        this.enabled = enabled;
+        this.prefixBytes = prefixSize.toBytes();
+        this.maxBytes = maxSize.toBytes();
+    }
+
+    // True when the region starts inside a mapped prefix, so at least its head can be served from memory
+    public boolean contains(TrackDescriptor track, long start, long length) {
+        return length > 0 && findSegment(track, start) != null;
+    }
+
+    // Writes the part of the region that lies inside the mapped prefix and returns how many bytes
+    // that was; the caller sends the remainder from the file. Zero means nothing was cached.
+    public long write(TrackDescriptor track, long start, long length, OutputStream out) throws IOException {
+        if (!enabled || length <= 0) {
+            return 0;
+        }
+        Segment segment = findSegment(track, start);
+        if (segment == null) {
+            misses.increment();
+            return 0;
+        }
+        hits.increment();
+
+        int cached = (int) Math.min(length, segment.buffer().capacity() - start);
+        ByteBuffer region = segment.buffer().slice((int) start, cached);
+        WritableByteChannel target = Channels.newChannel(out);
+        while (region.hasRemaining()) {
+            target.write(region);
+        }
+        out.flush();
+        return cached;
+    }
+
+    private Segment findSegment(TrackDescriptor track, long start) {
+        if (!enabled) {
+            return null;
+        }
+        Segment segment = segments.get(track.trackId());
+        if (segment == null || !segment.matches(track) || start >= segment.buffer().capacity()) {
+            return null;
+        }
+        return segment;
+    }
+
+    @Scheduled(initialDelayString = "${music.stream.prefix-cache.initial-delay:PT1M}",
+            fixedDelayString = "${music.stream.prefix-cache.refresh-interval:PT5M}")
+    public void refresh() {
+        int capacity = (int) Math.min(Integer.MAX_VALUE, maxBytes / Math.max(prefixBytes, 1));
+        if (!enabled || capacity < 1) {
+            return;
+        }
+
+        Map<Long, Segment> current = segments;
+        Map<Long, Segment> next = new HashMap<>();
+        long mappedBytes = 0;
+
+        for (Track hot : trackRepository.findMostPlayed(PageRequest.of(0, capacity))) {
+            try {
+                TrackDescriptor track = trackService.getTrackDescriptor(hot.getId());
+                // Checked before mapping, and a prefix that does not fit leaves room for smaller ones further down
+                long length = prefixLength(track);
+                if (mappedBytes + length > maxBytes) {
+                    continue;
+                }
+                Segment segment = current.get(track.trackId());
+                if (segment == null || !segment.matches(track)) {
+                    segment = map(track);
+                }
+                next.put(track.trackId(), segment);
+                mappedBytes += length;
+            } catch (Exception e) {
+                log.debug("Skipping prefix cache for track {}: {}", hot.getId(), e.getMessage());
+            }
+        }
+
+        // Evicted segments are unmapped once the last in-flight reader lets go of them
+        segments = Map.copyOf(next);
+        log.debug("Prefix cache refreshed: {} tracks, {} bytes mapped", next.size(), mappedBytes);
+    }
+
+    public PrefixCacheStatsResponse getStats() {
+        Map<Long, Segment> current = segments;
+        long mappedBytes = current.values().stream()
+                .mapToLong(segment -> segment.buffer().capacity())
+                .sum();
+        return new PrefixCacheStatsResponse(enabled, current.size(), mappedBytes, maxBytes, prefixBytes,
+                hits.sum(), misses.sum());
+    }
+
+    private long prefixLength(TrackDescriptor track) {
+        return Math.min(Math.min(prefixBytes, track.size()), Integer.MAX_VALUE);
+    }
+
+    private Segment map(TrackDescriptor track) throws IOException {
+        long length = prefixLength(track);
+        try (FileChannel channel = FileChannel.open(track.path(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.load();
+            return new Segment(track.size(), track.lastModified(), buffer);
+        }
+    }
+
+    private record Segment(long fileSize, long lastModified, MappedByteBuffer buffer) {
+
+        boolean matches(TrackDescriptor track) {
+            return fileSize == track.size() && lastModified == track.lastModified();
+        }
+    }
+}
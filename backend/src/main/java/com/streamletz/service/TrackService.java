@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 
 @Service
@@ -19,26 +20,30 @@ import java.util.List;
 public class TrackService {
 
     private final TrackRepository trackRepository;
+    private final TrackDescriptorCache trackDescriptorCache;
+    private final PlayCountAggregator playCountAggregator;
+    private final PlayHistoryService playHistoryService;
+    private final ChartService chartService;
 
     @Value("${music.storage.path}")
     private String musicStoragePath;
 
     public List<Track> getAllTracks() {
-        return trackRepository.findAll();
+        return trackRepository.findByDeletedAtIsNullAndDuplicateOfIsNull();
     }
 
     public Track getTrackById(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("Track ID cannot be null");
         }
-        return trackRepository.findById(id)
+        return trackRepository.findByIdAndDeletedAtIsNull(id)
                 .orElseThrow(() -> new RuntimeException("Track not found with id: " + id));
     }
 
     public List<Track> searchTracks(String query) {
-        List<Track> tracks = trackRepository.findByTitleContainingIgnoreCase(query);
-        tracks.addAll(trackRepository.findByArtistContainingIgnoreCase(query));
-        tracks.addAll(trackRepository.findByAlbumContainingIgnoreCase(query));
+        List<Track> tracks = trackRepository.findByTitleContainingIgnoreCaseAndDeletedAtIsNullAndDuplicateOfIsNull(query);
+        tracks.addAll(trackRepository.findByArtistContainingIgnoreCaseAndDeletedAtIsNullAndDuplicateOfIsNull(query));
+        tracks.addAll(trackRepository.findByAlbumContainingIgnoreCaseAndDeletedAtIsNullAndDuplicateOfIsNull(query));
         return tracks.stream().distinct().toList();
     }
 
@@ -62,27 +67,39 @@ public class TrackService {
         }
     }
 
-    public void incrementPlayCount(Long trackId) {
-        Track track = getTrackById(trackId);
-        Integer currentPlayCount = track.getPlayCount();
-        track.setPlayCount(currentPlayCount != null ? currentPlayCount + 1 : 1);
-        trackRepository.save(track);
+    public void incrementPlayCount(Long trackId, String username) {
+        if (trackId == null) {
+            throw new IllegalArgumentException("Track ID cannot be null");
+        }
+        playCountAggregator.record(trackId);
+        playHistoryService.recordPlay(trackId, username);
+        chartService.record(trackId);
+    }
+
+    public TrackDescriptor getTrackDescriptor(Long trackId) {
+        if (trackId == null) {
+            throw new IllegalArgumentException("Track ID cannot be null");
+        }
+        return trackDescriptorCache.get(trackId, this::loadTrackDescriptor);
     }
 
-    public long getTrackFileSize(Long trackId) {
+    private TrackDescriptor loadTrackDescriptor(Long trackId) {
         Track track = getTrackById(trackId);
+        Path filePath = Paths.get(musicStoragePath).resolve(track.getFilePath()).normalize();
         try {
-            Path filePath = Paths.get(musicStoragePath).resolve(track.getFilePath()).normalize();
-            return Files.size(filePath);
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            if (!attributes.isRegularFile() || !Files.isReadable(filePath)) {
+                throw new RuntimeException("File not found or not readable: " + track.getFilePath());
+            }
+            return new TrackDescriptor(track.getId(), filePath, attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), getContentType(track.getFileFormat()),
+                    track.getDuration());
         } catch (IOException e) {
-            throw new RuntimeException("Error getting file size: " + e.getMessage());
+            throw new RuntimeException("File not found or not readable: " + track.getFilePath());
         }
     }
 
-    public String getContentType(Long trackId) {
-        Track track = getTrackById(trackId);
-        String format = track.getFileFormat();
-
+    public String getContentType(String format) {
         if (format == null) {
             return "audio/mpeg";
         }
@@ -101,7 +118,9 @@ public class TrackService {
         if (track == null) {
             throw new IllegalArgumentException("Track cannot be null");
         }
-        return trackRepository.save(track);
+        Track saved = trackRepository.save(track);
+        trackDescriptorCache.invalidate(saved.getId());
+        return saved;
     }
 
     public void deleteTrack(Long id) {
@@ -109,6 +128,7 @@ public class TrackService {
             throw new IllegalArgumentException("Track ID cannot be null");
         }
         trackRepository.deleteById(id);
+        trackDescriptorCache.invalidate(id);
     }
 
     public void downloadTrackFromExternal(String source, String url) {
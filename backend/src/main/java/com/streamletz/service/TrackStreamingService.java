@@ -0,0 +1,230 @@
+package com.streamletz.service;
+
+import com.streamletz.util.FileValidators;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class TrackStreamingService {
+
+    // Tomcat request attributes for handing a file region to the connector's sendfile support
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final TrackPrefixCache trackPrefixCache;
+    private final StreamBandwidthShaper bandwidthShaper;
+    private final StreamMetrics streamMetrics;
+
+    public StreamingResponseBody stream(TrackDescriptor track, String rangeHeader,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long fileSize = track.size();
+        String etag = track.etag();
+
+        if (new ServletWebRequest(request, response).checkNotModified(etag, track.lastModified())) {
+            return null;
+        }
+
+        response.setContentType(track.contentType());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        boolean rangeApplies = FileValidators.ifRangeMatches(
+                request.getHeader(HttpHeaders.IF_RANGE), etag, track.lastModified());
+        if (rangeHeader == null || rangeHeader.isEmpty() || !rangeApplies) {
+            response.setStatus(HttpStatus.OK.value());
+            return writeRegion(track, 0, fileSize, request, response);
+        }
+
+        List<ByteRange> ranges = resolveRanges(rangeHeader, fileSize);
+        if (ranges.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return null;
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(fileSize));
+            return writeRegion(track, range.start(), range.length(), request, response);
+        }
+        return writeMultipart(track, ranges, request, response);
+    }
+
+    public StreamingResponseBody streamSegment(TrackDescriptor track, long start, long length, byte[] header,
+            String etag, HttpServletRequest request, HttpServletResponse response) {
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return null;
+        }
+
+        response.setContentType(track.contentType());
+        response.setContentLengthLong(header.length + length);
+
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return null;
+        }
+
+        String clientKey = bandwidthShaper.clientKey(request);
+        return streamMetrics.track(body -> {
+            OutputStream out = bandwidthShaper.shape(track, clientKey, body);
+            out.write(header);
+            writeBody(track, start, length, out);
+        });
+    }
+
+    private List<ByteRange> resolveRanges(String rangeHeader, long fileSize) {
+        List<HttpRange> requested;
+        try {
+            requested = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+
+        List<ByteRange> satisfiable = new ArrayList<>();
+        for (HttpRange range : requested) {
+            try {
+                long start = range.getRangeStart(fileSize);
+                long end = range.getRangeEnd(fileSize);
+                if (start <= end) {
+                    satisfiable.add(new ByteRange(start, end));
+                }
+            } catch (IllegalArgumentException e) {
+                // Unsatisfiable ranges are dropped; the request fails only if none remain
+            }
+        }
+        if (satisfiable.size() < 2) {
+            return satisfiable;
+        }
+
+        // Overlapping or adjacent ranges are merged so a part is never sent twice
+        satisfiable.sort(Comparator.comparingLong(ByteRange::start));
+        List<ByteRange> merged = new ArrayList<>();
+        ByteRange current = satisfiable.get(0);
+        for (ByteRange next : satisfiable.subList(1, satisfiable.size())) {
+            if (next.start() <= current.end() + 1) {
+                current = new ByteRange(current.start(), Math.max(current.end(), next.end()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    private StreamingResponseBody writeMultipart(TrackDescriptor track, List<ByteRange> ranges,
+            HttpServletRequest request, HttpServletResponse response) {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + track.contentType() + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(track.size()) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range.length();
+        }
+        byte[] closingBoundary = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closingBoundary.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return null;
+        }
+
+        String clientKey = bandwidthShaper.clientKey(request);
+        return streamMetrics.track(body -> {
+            OutputStream out = bandwidthShaper.shape(track, clientKey, body);
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders.get(i));
+                writeBody(track, ranges.get(i).start(), ranges.get(i).length(), out);
+            }
+            out.write(closingBoundary);
+            out.flush();
+        });
+    }
+
+    private StreamingResponseBody writeRegion(TrackDescriptor track, long start, long length,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(length);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || length == 0) {
+            return null;
+        }
+
+        // Sendfile bypasses the response stream, so it is only used when streams are not paced
+        if (!bandwidthShaper.isEnabled() && !trackPrefixCache.contains(track, start, length)
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // The connector streams the region straight from the page cache once the handler returns
+            request.setAttribute(SENDFILE_FILENAME_ATTR, track.path().toFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+            return null;
+        }
+
+        String clientKey = bandwidthShaper.clientKey(request);
+        return streamMetrics.track(body -> writeBody(track, start, length,
+                bandwidthShaper.shape(track, clientKey, body)));
+    }
+
+    // The head that falls inside the mapped prefix comes from memory, the rest from the file
+    private void writeBody(TrackDescriptor track, long start, long length, OutputStream out) throws IOException {
+        long cached = trackPrefixCache.write(track, start, length, out);
+        if (cached < length) {
+            transferRegion(track, start + cached, length - cached, out);
+        }
+    }
+
+    private void transferRegion(TrackDescriptor track, long start, long length, OutputStream out)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(track.path(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("Track file is shorter than expected: " + track.path());
+                }
+                position += transferred;
+            }
+        }
+        out.flush();
+    }
+
+    private record ByteRange(long start, long end) {
+
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long fileSize) {
+            return "bytes " + start + "-" + end + "/" + fileSize;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.streamletz.util;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+public final class FileValidators {
+
+    private FileValidators() {
+    }
+
+    public static String etag(Path path, long size, long lastModified) {
+        return "\"" + Integer.toHexString(path.toAbsolutePath().normalize().hashCode())
+                + "-" + Long.toHexString(size)
+                + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    public static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null || ifRange.isBlank()) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"")) {
+            return value.equals(etag);
+        }
+        if (value.startsWith("W/")) {
+            // If-Range requires strong comparison, weak validators never match
+            return false;
+        }
+        try {
+            Instant date = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC).parse(value, Instant::from);
+            return date.getEpochSecond() == lastModified / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
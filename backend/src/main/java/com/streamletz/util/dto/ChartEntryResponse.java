@@ -0,0 +1,17 @@
+package com.streamletz.util.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChartEntryResponse {
+    private int rank;
+    private Long trackId;
+    private String title;
+    private String artist;
+    private String album;
+    private double score;
+}
@@ -0,0 +1,19 @@
+package com.streamletz.util.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChartResponse {
+    private String window;
+    private Instant generatedAt;
+    private List<ChartEntryResponse> tracks;
+    private List<ChartEntryResponse> artists;
+    private List<ChartEntryResponse> albums;
+}
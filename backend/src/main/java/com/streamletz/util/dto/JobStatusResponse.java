@@ -0,0 +1,26 @@
+package com.streamletz.util.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatusResponse {
+    private String job;
+    private String status;
+    // DISCOVERING while the total is still growing, PROCESSING once it is final; null when not running
+    private String phase;
+    private Long processed;
+    private Long failed;
+    private Long total;
+    private Double itemsPerSecond;
+    private Long etaSeconds;
+    private Long checkpoint;
+    private String lastError;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
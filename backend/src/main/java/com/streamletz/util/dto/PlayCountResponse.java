@@ -0,0 +1,15 @@
+package com.streamletz.util.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlayCountResponse {
+    private Instant periodStart;
+    private Long playCount;
+}
@@ -0,0 +1,18 @@
+package com.streamletz.util.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrefixCacheStatsResponse {
+    private boolean enabled;
+    private int cachedTracks;
+    private long mappedBytes;
+    private long maxBytes;
+    private long prefixBytes;
+    private long hits;
+    private long misses;
+}
@@ -0,0 +1,94 @@
+package com.streamletz.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// Compares the native tag reader with the jaudiotagger path the scanner used before, on a
+// real library. Lives with the test sources so it stays out of the application jar:
+//   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+//   java -cp target/classes:target/test-classes:$(cat target/classpath.txt) \
+//        com.streamletz.service.AudioTagReaderBenchmark /musics [rounds]
+// Reports throughput of both and every file where they disagree on tags or duration.
+public final class AudioTagReaderBenchmark {
+
+    private static final List<String> EXTENSIONS = List.of("mp3", "flac", "m4a", "wav", "ogg");
+
+    private AudioTagReaderBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: AudioTagReaderBenchmark <music-dir> [rounds]");
+            System.exit(1);
+        }
+        Path root = Paths.get(args[0]);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).filter(AudioTagReaderBenchmark::isAudioFile).toList();
+        }
+        System.out.printf(Locale.ROOT, "%d audio files under %s, %d rounds%n", files.size(), root, rounds);
+
+        int nativeHandled = 0;
+        int mismatches = 0;
+        for (Path file : files) {
+            AudioTagReader.AudioTags fast;
+            AudioTagReader.AudioTags full;
+            try {
+                fast = AudioTagReader.readNative(file, false);
+                full = AudioTagReader.readJaudiotagger(file, false);
+            } catch (Exception e) {
+                continue;
+            }
+            if (fast == null) {
+                continue;
+            }
+            nativeHandled++;
+            if (!Objects.equals(fast.title(), full.title()) || !Objects.equals(fast.artist(), full.artist())
+                    || !Objects.equals(fast.album(), full.album())
+                    || Math.abs(fast.duration() - full.duration()) > 1) {
+                mismatches++;
+                System.out.printf("Mismatch %s%n  native:      %s%n  jaudiotagger: %s%n", file, fast, full);
+            }
+        }
+        System.out.printf(Locale.ROOT, "Native reader handled %d of %d files, %d mismatches%n",
+                nativeHandled, files.size(), mismatches);
+
+        for (int round = 1; round <= rounds; round++) {
+            double before = time(files, false);
+            double after = time(files, true);
+            System.out.printf(Locale.ROOT, "Round %d: jaudiotagger %.1f files/s, native with fallback %.1f files/s (%.1fx)%n",
+                    round, files.size() / before, files.size() / after, before / after);
+        }
+    }
+
+    private static double time(List<Path> files, boolean nativeReader) {
+        long start = System.nanoTime();
+        for (Path file : files) {
+            try {
+                if (nativeReader) {
+                    AudioTagReader.read(file, false);
+                } else {
+                    AudioTagReader.readJaudiotagger(file, false);
+                }
+            } catch (Exception e) {
+                // Counted in the time like a scan would
+            }
+        }
+        return Math.max(1, System.nanoTime() - start) / 1e9;
+    }
+
+    private static boolean isAudioFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return EXTENSIONS.stream().anyMatch(extension -> name.endsWith("." + extension));
+    }
+}